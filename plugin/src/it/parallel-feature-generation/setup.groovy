@@ -0,0 +1,55 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+// The temporary directory of the build (see invoker.properties) has to exist before the build starts.
+new File(basedir, "tmp").mkdirs()
+
+// Generates the component modules listed in pom.xml. Each component has a page, a configuration and a stylesheet of
+// its own, so that a feature which contains files of another component can be detected.
+def moduleCount = 8
+for (int i = 1; i <= moduleCount; i++) {
+    def module = new File(basedir, "component" + i)
+    new File(module, "pages").mkdirs()
+    new File(module, "public/css").mkdirs()
+    new File(module, "pom.xml").text = """<?xml version="1.0" encoding="utf-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0"
+         xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd">
+    <modelVersion>4.0.0</modelVersion>
+
+    <parent>
+        <groupId>org.wso2.carbon.uuf.it</groupId>
+        <artifactId>org.wso2.carbon.uuf.it.parallel</artifactId>
+        <version>1.0.0</version>
+    </parent>
+
+    <artifactId>org.wso2.carbon.uuf.it.component${i}</artifactId>
+
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>org.wso2.carbon.uuf.maven</groupId>
+                <artifactId>carbon-uuf-maven-plugin</artifactId>
+            </plugin>
+        </plugins>
+    </build>
+</project>
+"""
+    new File(module, "config.yaml").text = "title: component${i}\n"
+    new File(module, "pages/index.hbs").text = "<h1>component${i}</h1>\n"
+    new File(module, "public/css/component${i}.css").text = ".component${i} {\n    color: red;\n}\n"
+}
+return true
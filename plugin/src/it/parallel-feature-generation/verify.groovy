@@ -0,0 +1,45 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+// Verifies that each component was packaged into a feature of its own files only, and that the temporary files of the
+// feature generations were written into the workspaces of the executions, which were cleaned up, instead of the
+// temporary directory shared by all executions (which the builds before per-execution workspaces used).
+def isTemporaryFeatureFile = { File file -> file.name == "p2.inf" || file.name ==~ /feature.*\.properties/ }
+
+def moduleCount = 8
+for (int i = 1; i <= moduleCount; i++) {
+    def module = new File(basedir, "component" + i)
+    def feature = new File(module, "target/maven-shared-resources/uufapps/component" + i)
+    assert feature.isDirectory(): "Feature directory of component${i} is missing."
+
+    assert new File(feature, "config.yaml").text == "title: component${i}\n"
+    assert new File(feature, "pages/index.hbs").text == "<h1>component${i}</h1>\n"
+    def stylesheets = new File(feature, "public/css").list() as List
+    assert stylesheets == ["component${i}.css".toString()]: "Unexpected stylesheets in component${i}: ${stylesheets}"
+    feature.eachFileRecurse { file ->
+        assert !isTemporaryFeatureFile(file): "Temporary file '${file}' is packaged into the feature of component${i}."
+    }
+
+    def workspaces = new File(module, "target/uuf-work")
+    assert !workspaces.exists() || workspaces.list().length == 0: "Workspaces of component${i} are not deleted."
+}
+
+def temporaryDirectory = new File(basedir, "tmp")
+assert temporaryDirectory.isDirectory()
+temporaryDirectory.eachFileRecurse { file ->
+    assert !isTemporaryFeatureFile(file): "Temporary file '${file}' is written into the shared temporary directory."
+}
+return true
@@ -0,0 +1,223 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.model;
+
+import org.wso2.carbon.uuf.maven.util.DependencyTree;
+import org.wso2.carbon.uuf.maven.util.YamlUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The layout of a UUF application which is being packaged: the root component, the dependent components and the
+ * dependent themes.
+ */
+public class Application {
+
+    public static final String CONFIG_FILE_NAME = "config.yaml";
+    public static final String BINDINGS_FILE_NAME = "bindings.yaml";
+    private static final String KEY_THEME = "theme";
+
+    private final Component rootComponent;
+    private final Map<String, Component> components;
+    private final Map<String, Theme> themes;
+    private final String themeName;
+    private final Map<String, List<String>> bindings;
+
+    public Application(Component rootComponent, Map<String, Component> components, Map<String, Theme> themes,
+                       String themeName, Map<String, List<String>> bindings) {
+        this.rootComponent = rootComponent;
+        this.components = Collections.unmodifiableMap(components);
+        this.themes = Collections.unmodifiableMap(themes);
+        this.themeName = themeName;
+        this.bindings = Collections.unmodifiableMap(bindings);
+    }
+
+    /**
+     * Reads the layout of an application.
+     *
+     * @param applicationDirectory  base directory of the application, i.e. the root component
+     * @param dependenciesDirectory directory where the dependent components and themes are extracted to
+     * @return read application
+     * @throws IOException if an error occurred while reading the application
+     */
+    public static Application read(Path applicationDirectory, Path dependenciesDirectory) throws IOException {
+        List<Path> rootDirectories = new ArrayList<>();
+        rootDirectories.add(applicationDirectory);
+        SortedMap<String, Component> dependentComponents = new TreeMap<>();
+        SortedMap<String, Theme> themes = new TreeMap<>();
+        if (Files.isDirectory(dependenciesDirectory)) {
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dependenciesDirectory)) {
+                for (Path dir : directoryStream) {
+                    if (!Files.isDirectory(dir)) {
+                        continue;
+                    }
+                    String name = dir.getFileName().toString();
+                    if (Files.exists(dir.resolve(Theme.CONFIG_FILE_NAME))) {
+                        themes.put(name, Theme.read(dir));
+                    } else if (Component.ROOT_COMPONENT_NAME.equals(name)) {
+                        // root components of the dependent applications
+                        rootDirectories.add(dir);
+                    } else {
+                        dependentComponents.put(name, new Component(name, Collections.singletonList(dir)));
+                    }
+                }
+            }
+        }
+
+        Component rootComponent = new Component(Component.ROOT_COMPONENT_NAME, rootDirectories);
+        Map<String, Component> components = new LinkedHashMap<>();
+        components.put(rootComponent.getName(), rootComponent);
+        components.putAll(dependentComponents);
+
+        String themeName = null;
+        for (Path directory : rootDirectories) {
+            Object theme = YamlUtils.loadMap(directory.resolve(CONFIG_FILE_NAME)).get(KEY_THEME);
+            if (theme != null) {
+                themeName = theme.toString();
+                break;
+            }
+        }
+
+        // Bindings of the dependent components are read in dependency order, so that each component overrides the
+        // components it depends on, and are overridden by the bindings of the root component.
+        List<String> dependencyOrder = DependencyTree.readDependencyOrder(
+                dependenciesDirectory.resolve(DependencyTree.FILE_NAME));
+        Map<String, List<String>> bindings = new LinkedHashMap<>();
+        for (Component component : DependencyTree.sort(dependencyOrder, dependentComponents.values())) {
+            readBindings(component.getDirectories(), bindings);
+        }
+        List<Path> reversedRootDirectories = new ArrayList<>(rootDirectories);
+        Collections.reverse(reversedRootDirectories);
+        readBindings(reversedRootDirectories, bindings);
+
+        return new Application(rootComponent, components, themes, themeName, bindings);
+    }
+
+    private static void readBindings(List<Path> directories, Map<String, List<String>> bindings)
+            throws IOException {
+        for (Path directory : directories) {
+            for (Map.Entry<Object, Object> entry : YamlUtils.loadMap(directory.resolve(BINDINGS_FILE_NAME))
+                    .entrySet()) {
+                bindings.put(String.valueOf(entry.getKey()), YamlUtils.toStringList(entry.getValue()));
+            }
+        }
+    }
+
+    public Component getRootComponent() {
+        return rootComponent;
+    }
+
+    /**
+     * @return all components of this application, root component first
+     */
+    public Map<String, Component> getComponents() {
+        return components;
+    }
+
+    public Map<String, Theme> getThemes() {
+        return themes;
+    }
+
+    /**
+     * @return name of the theme configured in the {@code config.yaml} of the root component, or {@code null}
+     */
+    public String getThemeName() {
+        return themeName;
+    }
+
+    /**
+     * @return the configured theme or {@code null} if no theme is configured or it is not a dependency
+     */
+    public Theme getActiveTheme() {
+        return (themeName == null) ? null : themes.get(themeName);
+    }
+
+    /**
+     * @return zone names mapped to the names of the fragments bound to them
+     */
+    public Map<String, List<String>> getBindings() {
+        return bindings;
+    }
+
+    /**
+     * Returns the fragments bound to the given zone. A zone defined as "footer" matches both "footer" and fully
+     * qualified bindings such as "org.wso2.uuf.sample.foundation.footer".
+     *
+     * @param zoneName zone name
+     * @return names of the bound fragments
+     */
+    public List<String> getBoundFragments(String zoneName) {
+        List<String> fragments = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : bindings.entrySet()) {
+            String key = entry.getKey();
+            if (key.equals(zoneName) || key.endsWith("." + zoneName)) {
+                fragments.addAll(entry.getValue());
+            }
+        }
+        return fragments;
+    }
+
+    /**
+     * Resolves the given path inside the deployed application (e.g. "public/css/main.css" of the root component or
+     * "components/foundation/public/css/main.css") to the file it is packaged from.
+     *
+     * @param archivePath path relative to the application directory, see {@link Component#getArchivePath(String)}
+     * @return packaged file or {@code null} if there is no such file
+     */
+    public Path resolveArchivePath(String archivePath) {
+        String[] segments = archivePath.split("/", 3);
+        if (segments.length == 3 && Component.COMPONENTS_DIR_NAME.equals(segments[0])) {
+            Component component = components.get(segments[1]);
+            // the root component is not packaged into the components directory
+            return (component == null || component == rootComponent) ? null : component.resolve(segments[2]);
+        } else if (segments.length == 3 && Theme.THEMES_DIR_NAME.equals(segments[0])) {
+            Theme theme = themes.get(segments[1]);
+            Path file = (theme == null) ? null : theme.getDirectory().resolve(segments[2]);
+            return (file != null && Files.exists(file)) ? file : null;
+        }
+        return rootComponent.resolve(archivePath);
+    }
+
+    /**
+     * Finds the component referred by the given (possibly fully qualified) component name.
+     *
+     * @param componentName component name
+     * @return referred component or {@code null} if there is no such component
+     */
+    public Component findComponent(String componentName) {
+        Component component = components.get(componentName);
+        if (component != null) {
+            return component;
+        }
+        for (Component candidate : components.values()) {
+            if (candidate.isReferredBy(componentName)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
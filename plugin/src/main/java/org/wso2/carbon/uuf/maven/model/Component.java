@@ -0,0 +1,264 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A UUF component inside an application. A component may be backed by more than one directory (e.g. the root
+ * component is merged from the application and the root components of its dependent applications); files in earlier
+ * directories override the files in later directories.
+ */
+public class Component {
+
+    public static final String ROOT_COMPONENT_NAME = "root";
+    public static final String COMPONENTS_DIR_NAME = "components";
+    public static final String PAGES_DIR_NAME = "pages";
+    public static final String FRAGMENTS_DIR_NAME = "fragments";
+    public static final String LAYOUTS_DIR_NAME = "layouts";
+    public static final String PUBLIC_DIR_NAME = "public";
+    public static final String TEMPLATE_EXTENSION = ".hbs";
+
+    private final String name;
+    private final List<Path> directories;
+
+    public Component(String name, List<Path> directories) {
+        this.name = name;
+        this.directories = Collections.unmodifiableList(new ArrayList<>(directories));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Path> getDirectories() {
+        return directories;
+    }
+
+    /**
+     * Checks whether the given (possibly fully qualified) component name refers to this component. Components are
+     * extracted into directories named by the simple artifact ID, hence "org.wso2.uuf.sample.foundation" refers to
+     * the component "foundation".
+     *
+     * @param componentName component name
+     * @return {@code true} if the name refers to this component
+     */
+    public boolean isReferredBy(String componentName) {
+        return name.equals(componentName) || componentName.endsWith("." + name);
+    }
+
+    /**
+     * Returns the path of the given file inside the deployed application, i.e. the application directory of the
+     * feature. The root component is at the top of the application while the other components are in
+     * {@code components/<name>}.
+     *
+     * @param relativePath path relative to this component, separated with '/'
+     * @return path relative to the application directory
+     */
+    public String getArchivePath(String relativePath) {
+        if (ROOT_COMPONENT_NAME.equals(name)) {
+            return relativePath;
+        }
+        return COMPONENTS_DIR_NAME + "/" + name + "/" + relativePath;
+    }
+
+    /**
+     * Resolves the given relative path against the directories of this component.
+     *
+     * @param relativePath path relative to this component, separated with '/'
+     * @return first existing file or {@code null} if none of the directories contains it
+     */
+    public Path resolve(String relativePath) {
+        for (Path directory : directories) {
+            Path file = directory.resolve(relativePath);
+            if (Files.exists(file)) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists all regular files under the given directory of this component.
+     *
+     * @param relativeDirectory directory relative to this component, separated with '/'
+     * @return component relative paths mapped to the effective files, sorted by path
+     * @throws IOException if an error occurred while walking the directories
+     */
+    public SortedMap<String, Path> listFiles(String relativeDirectory) throws IOException {
+        SortedMap<String, Path> files = new TreeMap<>();
+        for (Path directory : directories) {
+            listFiles(directory, relativeDirectory, files);
+        }
+        return files;
+    }
+
+    /**
+     * Lists the public files of this component, i.e. the files in the {@code public} directories of the component
+     * and of its fragments.
+     *
+     * @return component relative paths mapped to the effective files, sorted by path
+     * @throws IOException if an error occurred while walking the directories
+     */
+    public SortedMap<String, Path> getPublicFiles() throws IOException {
+        SortedMap<String, Path> files = listFiles(PUBLIC_DIR_NAME);
+        for (String fragmentName : getFragmentNames()) {
+            files.putAll(listFiles(getFragmentPath(fragmentName) + "/" + PUBLIC_DIR_NAME));
+        }
+        return files;
+    }
+
+    /**
+     * Adds the regular files under the given sub directory of the given directory, which are not already added.
+     *
+     * @param directory         base directory
+     * @param relativeDirectory sub directory relative to the base directory, separated with '/'
+     * @param files             base directory relative paths mapped to the files
+     * @throws IOException if an error occurred while walking the sub directory
+     */
+    static void listFiles(final Path directory, String relativeDirectory, final Map<String, Path> files)
+            throws IOException {
+        Path subDirectory = directory.resolve(relativeDirectory);
+        if (!Files.isDirectory(subDirectory)) {
+            return;
+        }
+        Files.walkFileTree(subDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relativePath = toUnixPath(directory.relativize(file));
+                if (!files.containsKey(relativePath)) {
+                    files.put(relativePath, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Returns the page templates of this component.
+     *
+     * @return component relative paths (e.g. "pages/index.hbs") mapped to the template files
+     * @throws IOException if an error occurred while walking the pages directory
+     */
+    public SortedMap<String, Path> getPages() throws IOException {
+        SortedMap<String, Path> pages = new TreeMap<>();
+        for (Map.Entry<String, Path> entry : listFiles(PAGES_DIR_NAME).entrySet()) {
+            if (entry.getKey().endsWith(TEMPLATE_EXTENSION)) {
+                pages.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Returns the names of the fragments of this component.
+     *
+     * @return sorted fragment names
+     * @throws IOException if an error occurred while reading the fragments directory
+     */
+    public SortedSet<String> getFragmentNames() throws IOException {
+        SortedSet<String> fragmentNames = new TreeSet<>();
+        for (Path directory : directories) {
+            Path fragmentsDirectory = directory.resolve(FRAGMENTS_DIR_NAME);
+            if (!Files.isDirectory(fragmentsDirectory)) {
+                continue;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(fragmentsDirectory)) {
+                for (Path fragmentDirectory : stream) {
+                    if (Files.isDirectory(fragmentDirectory)) {
+                        fragmentNames.add(fragmentDirectory.getFileName().toString());
+                    }
+                }
+            }
+        }
+        return fragmentNames;
+    }
+
+    /**
+     * Returns the path of the given fragment relative to this component.
+     *
+     * @param fragmentName simple name of the fragment
+     * @return component relative path of the fragment directory
+     */
+    public String getFragmentPath(String fragmentName) {
+        return FRAGMENTS_DIR_NAME + "/" + fragmentName;
+    }
+
+    /**
+     * Returns the template of the given fragment.
+     *
+     * @param fragmentName simple name of the fragment
+     * @return template file or {@code null} if this component does not have such a fragment
+     */
+    public Path getFragmentTemplate(String fragmentName) {
+        return resolve(getFragmentPath(fragmentName) + "/" + fragmentName + TEMPLATE_EXTENSION);
+    }
+
+    /**
+     * Returns the path of the given layout relative to this component. A layout is either a single template
+     * ("layouts/main.hbs") or a directory ("layouts/main/main.hbs").
+     *
+     * @param layoutName simple name of the layout
+     * @return component relative path of the layout template or directory, or {@code null} if this component does
+     * not have such a layout
+     */
+    public String getLayoutPath(String layoutName) {
+        String templatePath = LAYOUTS_DIR_NAME + "/" + layoutName + TEMPLATE_EXTENSION;
+        if (resolve(templatePath) != null) {
+            return templatePath;
+        }
+        String directoryPath = LAYOUTS_DIR_NAME + "/" + layoutName;
+        if (resolve(directoryPath + "/" + layoutName + TEMPLATE_EXTENSION) != null) {
+            return directoryPath;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the template of the given layout.
+     *
+     * @param layoutName simple name of the layout
+     * @return template file or {@code null} if this component does not have such a layout
+     */
+    public Path getLayoutTemplate(String layoutName) {
+        String layoutPath = getLayoutPath(layoutName);
+        if (layoutPath == null) {
+            return null;
+        }
+        return layoutPath.endsWith(TEMPLATE_EXTENSION) ? resolve(layoutPath) :
+                resolve(layoutPath + "/" + layoutName + TEMPLATE_EXTENSION);
+    }
+
+    private static String toUnixPath(Path relativePath) {
+        return relativePath.toString().replace(File.separatorChar, '/');
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Layouts, fragments and assets which a page depends on. All entries are paths inside the application archive, kept
+ * in the order they are first encountered.
+ */
+public class PageAssets {
+
+    private final Set<String> layouts = new LinkedHashSet<>();
+    private final Set<String> fragments = new LinkedHashSet<>();
+    private final Set<String> css = new LinkedHashSet<>();
+    private final Set<String> headJs = new LinkedHashSet<>();
+    private final Set<String> js = new LinkedHashSet<>();
+    private final Set<String> images = new LinkedHashSet<>();
+
+    public Set<String> getLayouts() {
+        return layouts;
+    }
+
+    public Set<String> getFragments() {
+        return fragments;
+    }
+
+    public Set<String> getCss() {
+        return css;
+    }
+
+    public Set<String> getHeadJs() {
+        return headJs;
+    }
+
+    public Set<String> getJs() {
+        return js;
+    }
+
+    public Set<String> getImages() {
+        return images;
+    }
+
+    /**
+     * @return all assets of the page: CSS, head JS, JS and images
+     */
+    public Set<String> getAssets() {
+        Set<String> assets = new LinkedHashSet<>(css);
+        assets.addAll(headJs);
+        assets.addAll(js);
+        assets.addAll(images);
+        return assets;
+    }
+
+    /**
+     * @return this page assets as a map which can be serialized to YAML
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("layouts", new ArrayList<>(layouts));
+        map.put("fragments", new ArrayList<>(fragments));
+        map.put("css", new ArrayList<>(css));
+        map.put("headJs", new ArrayList<>(headJs));
+        map.put("js", new ArrayList<>(js));
+        map.put("images", new ArrayList<>(images));
+        return map;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.model;
+
+import org.wso2.carbon.uuf.maven.util.YamlUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A UUF theme inside an application.
+ */
+public class Theme {
+
+    public static final String THEMES_DIR_NAME = "themes";
+    public static final String CONFIG_FILE_NAME = "theme.yaml";
+    private static final String KEY_CSS = "css";
+    private static final String KEY_HEAD_JS = "headJs";
+    private static final String KEY_JS = "js";
+
+    private final String name;
+    private final Path directory;
+    private final List<String> css;
+    private final List<String> headJs;
+    private final List<String> js;
+
+    public Theme(String name, Path directory, List<String> css, List<String> headJs, List<String> js) {
+        this.name = name;
+        this.directory = directory;
+        this.css = Collections.unmodifiableList(css);
+        this.headJs = Collections.unmodifiableList(headJs);
+        this.js = Collections.unmodifiableList(js);
+    }
+
+    /**
+     * Reads the theme in the given directory.
+     *
+     * @param directory theme directory which contains the {@code theme.yaml}
+     * @return read theme
+     * @throws IOException if the theme configuration cannot be read
+     */
+    public static Theme read(Path directory) throws IOException {
+        Map<Object, Object> config = YamlUtils.loadMap(directory.resolve(CONFIG_FILE_NAME));
+        return new Theme(directory.getFileName().toString(), directory,
+                         YamlUtils.toStringList(config.get(KEY_CSS)),
+                         YamlUtils.toStringList(config.get(KEY_HEAD_JS)),
+                         YamlUtils.toStringList(config.get(KEY_JS)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return CSS files of this theme, relative to the {@code public} directory
+     */
+    public List<String> getCss() {
+        return css;
+    }
+
+    /**
+     * @return JS files of this theme that go into the page head, relative to the {@code public} directory
+     */
+    public List<String> getHeadJs() {
+        return headJs;
+    }
+
+    /**
+     * @return JS files of this theme, relative to the {@code public} directory
+     */
+    public List<String> getJs() {
+        return js;
+    }
+
+    /**
+     * Lists the files in the {@code public} directory of this theme.
+     *
+     * @return theme relative paths mapped to the files, sorted by path
+     * @throws IOException if an error occurred while walking the directory
+     */
+    public SortedMap<String, Path> getPublicFiles() throws IOException {
+        SortedMap<String, Path> files = new TreeMap<>();
+        Component.listFiles(directory, Component.PUBLIC_DIR_NAME, files);
+        return files;
+    }
+
+    /**
+     * Returns the path of the given file inside the deployed application, i.e. the application directory of the
+     * feature.
+     *
+     * @param relativePath path relative to this theme, separated with '/'
+     * @return path relative to the application directory
+     */
+    public String getArchivePath(String relativePath) {
+        return THEMES_DIR_NAME + "/" + name + "/" + relativePath;
+    }
+}
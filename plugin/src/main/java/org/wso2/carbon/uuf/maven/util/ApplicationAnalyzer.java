@@ -0,0 +1,203 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures an application as it is laid out in the application archive: the files of each component and theme, the
+ * public assets and the estimated compressed transfer weight of each page.
+ */
+public class ApplicationAnalyzer {
+
+    private final Application application;
+    private final FileFilter fileFilter;
+    private final Map<String, Path> sharedAssets;
+    private final Map<Path, Long> compressedSizes = new HashMap<>();
+
+    /**
+     * @param application  application to analyze
+     * @param fileFilter   filter for the files and directories which are packaged
+     * @param sharedAssets archive paths of the deduplicated assets mapped to their shared files
+     */
+    public ApplicationAnalyzer(Application application, FileFilter fileFilter, Map<String, Path> sharedAssets) {
+        this.application = application;
+        this.fileFilter = fileFilter;
+        this.sharedAssets = sharedAssets;
+    }
+
+    /**
+     * Lists the packaged files of each component and theme. Deduplicated assets are not included.
+     *
+     * @return archive directories of the components and themes (e.g. "components/foundation", or "root" for the root
+     * component, which is at the top of the application) mapped to the archive paths and the files
+     * @throws IOException if an error occurred while walking the directories
+     */
+    public Map<String, SortedMap<String, Path>> getFiles() throws IOException {
+        Map<String, SortedMap<String, Path>> files = new LinkedHashMap<>();
+        for (Component component : application.getComponents().values()) {
+            SortedMap<String, Path> componentFiles = new TreeMap<>();
+            for (Path directory : component.getDirectories()) {
+                listFiles(directory, component.getArchivePath(""), componentFiles);
+            }
+            String archiveDirectory = component.getArchivePath("").replaceAll("/$", "");
+            files.put(archiveDirectory.isEmpty() ? component.getName() : archiveDirectory, componentFiles);
+        }
+        for (Theme theme : application.getThemes().values()) {
+            SortedMap<String, Path> themeFiles = new TreeMap<>();
+            listFiles(theme.getDirectory(), theme.getArchivePath(""), themeFiles);
+            files.put(theme.getArchivePath("").replaceAll("/$", ""), themeFiles);
+        }
+        return files;
+    }
+
+    /**
+     * Lists the public assets of all components and themes. Deduplicated assets are mapped to their shared files.
+     *
+     * @return archive paths mapped to the files, sorted by path
+     * @throws IOException if an error occurred while walking the directories
+     */
+    public SortedMap<String, Path> getAssets() throws IOException {
+        SortedMap<String, Path> assets = new TreeMap<>();
+        for (Component component : application.getComponents().values()) {
+            for (Map.Entry<String, Path> entry : component.getPublicFiles().entrySet()) {
+                assets.put(component.getArchivePath(entry.getKey()), entry.getValue());
+            }
+        }
+        for (Theme theme : application.getThemes().values()) {
+            for (Map.Entry<String, Path> entry : theme.getPublicFiles().entrySet()) {
+                assets.put(theme.getArchivePath(entry.getKey()), entry.getValue());
+            }
+        }
+        assets.putAll(sharedAssets);
+        return assets;
+    }
+
+    /**
+     * Estimates the compressed transfer weight of each page, i.e. the sum of the compressed sizes of its CSS, JS and
+     * image assets. Assets of a type which is bundled for the page are weighed by the files served for the type
+     * instead, i.e. the bundles and the assets which are not bundled. Assets which cannot be found are ignored.
+     *
+     * @param pages       archive paths of the pages mapped to their assets
+     * @param assets      archive paths of the assets mapped to the files
+     * @param pageBundles archive paths of the pages mapped to the files served for each bundled asset type (see
+     *                    {@link AssetsBundler#TYPE_CSS} etc.)
+     * @return archive paths of the pages mapped to their weights in bytes
+     * @throws IOException if an error occurred while reading the assets
+     */
+    public Map<String, Long> getPageWeights(Map<String, PageAssets> pages, Map<String, Path> assets,
+                                            Map<String, Map<String, List<Path>>> pageBundles) throws IOException {
+        Map<String, Long> pageWeights = new LinkedHashMap<>();
+        for (Map.Entry<String, PageAssets> page : pages.entrySet()) {
+            Map<String, List<Path>> bundles = pageBundles.get(page.getKey());
+            if (bundles == null) {
+                bundles = Collections.emptyMap();
+            }
+            long weight = getWeight(page.getValue().getCss(), bundles.get(AssetsBundler.TYPE_CSS), assets) +
+                    getWeight(page.getValue().getHeadJs(), bundles.get(AssetsBundler.TYPE_HEAD_JS), assets) +
+                    getWeight(page.getValue().getJs(), bundles.get(AssetsBundler.TYPE_JS), assets) +
+                    getWeight(page.getValue().getImages(), null, assets);
+            pageWeights.put(page.getKey(), weight);
+        }
+        return pageWeights;
+    }
+
+    private long getWeight(Collection<String> pageAssets, List<Path> servedFiles, Map<String, Path> assets)
+            throws IOException {
+        long weight = 0;
+        if (servedFiles != null) {
+            for (Path servedFile : servedFiles) {
+                weight += getCompressedSize(servedFile);
+            }
+            return weight;
+        }
+        for (String asset : pageAssets) {
+            Path file = assets.get(asset);
+            if (file != null) {
+                weight += getCompressedSize(file);
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Estimates the size of the given file when it is transferred or archived with gzip compression. Files which do
+     * not compress, e.g. images, are estimated by their own size.
+     *
+     * @param file file to measure
+     * @return estimated compressed size in bytes
+     * @throws IOException if the file cannot be read
+     */
+    public long getCompressedSize(Path file) throws IOException {
+        Long compressedSize = compressedSizes.get(file);
+        if (compressedSize == null) {
+            CountingOutputStream counter = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(counter)) {
+                Files.copy(file, gzipOutputStream);
+            }
+            compressedSize = Math.min(Files.size(file), counter.getByteCount());
+            compressedSizes.put(file, compressedSize);
+        }
+        return compressedSize;
+    }
+
+    private void listFiles(final Path directory, final String archiveDirectory, final Map<String, Path> files)
+            throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                boolean accepted = dir.equals(directory) || fileFilter.accept(dir.toFile());
+                return accepted ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String archivePath = archiveDirectory + directory.relativize(file).toString().replace('\\', '/');
+                if (fileFilter.accept(file.toFile()) && !files.containsKey(archivePath) &&
+                        !sharedAssets.containsKey(archivePath)) {
+                    files.put(archivePath, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
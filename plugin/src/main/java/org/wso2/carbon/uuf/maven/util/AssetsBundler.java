@@ -0,0 +1,261 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Concatenates the CSS, head JS and JS assets of each page into bundles, one per asset type unless some assets cannot
+ * be bundled. Assets are ordered by dependency: theme assets first, then the assets of the dependent components in the
+ * order of the dependency tree and the assets of the root component last, keeping the page order within each of them.
+ * CSS which contains {@code @import} rules is not bundled, since the rules would not be at the top of the bundle, and
+ * neither is CSS which contains relative URLs, since they would be resolved against the URL of the bundle. Such an
+ * asset is served on its own, in its place in the order, between the bundles of the assets before and after it.
+ * <p>
+ * Bundles are named by the hash of their content, hence bundling is deterministic, pages which need the same assets
+ * share a bundle and a bundle file is written only when its content changes. The assets are read in every build.
+ * <p>
+ * The index ({@value #INDEX_FILE_NAME}) maps each page to the files to serve for each asset type, in order, where each
+ * file is either a bundle or an asset which is not bundled, and maps each bundle to the assets it contains.
+ */
+public class AssetsBundler {
+
+    public static final String BUNDLES_DIR_NAME = "bundles";
+    public static final String INDEX_FILE_NAME = "index.yaml";
+    public static final String TYPE_CSS = "css";
+    public static final String TYPE_HEAD_JS = "headJs";
+    public static final String TYPE_JS = "js";
+    private static final String CSS_EXTENSION = ".css";
+    private static final String JS_EXTENSION = ".js";
+    private static final Pattern CSS_URL_PATTERN = Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+    private static final Pattern ABSOLUTE_URL_PATTERN = Pattern.compile("^([a-zA-Z][a-zA-Z0-9+.-]*:|/|#).*");
+    private static final Pattern CSS_COMMENT_PATTERN = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern CSS_IMPORT_PATTERN = Pattern.compile("@import\\b", Pattern.CASE_INSENSITIVE);
+
+    private final Application application;
+    private final List<String> dependencyOrder;
+    private final Path bundlesDirectory;
+    private final Set<String> missingAssets = new TreeSet<>();
+    private final Set<String> importingAssets = new TreeSet<>();
+    private final Set<String> relativeUrlAssets = new TreeSet<>();
+    private final Set<String> bundleFiles = new HashSet<>();
+    private int writtenBundles;
+
+    /**
+     * @param application      application to bundle the assets of
+     * @param dependencyOrder  artifact IDs in dependency order, see {@link DependencyTree#readDependencyOrder(Path)}
+     * @param bundlesDirectory directory to write the bundles into
+     */
+    public AssetsBundler(Application application, List<String> dependencyOrder, Path bundlesDirectory) {
+        this.application = application;
+        this.dependencyOrder = dependencyOrder;
+        this.bundlesDirectory = bundlesDirectory;
+    }
+
+    /**
+     * Bundles the assets of the given pages and writes the bundles index. Bundles which are no longer used are
+     * deleted from the bundles directory.
+     *
+     * @param pages archive paths of the pages mapped to their assets
+     * @return number of bundles
+     * @throws IOException if an error occurred while reading the assets or writing the bundles
+     */
+    public int bundle(Map<String, PageAssets> pages) throws IOException {
+        Files.createDirectories(bundlesDirectory);
+        Map<String, Object> pageBundles = new LinkedHashMap<>();
+        Map<String, Object> bundles = new TreeMap<>();
+        for (Map.Entry<String, PageAssets> page : pages.entrySet()) {
+            Map<String, Object> bundlesOfPage = new LinkedHashMap<>();
+            addBundles(TYPE_CSS, page.getValue().getCss(), CSS_EXTENSION, bundlesOfPage, bundles);
+            addBundles(TYPE_HEAD_JS, page.getValue().getHeadJs(), JS_EXTENSION, bundlesOfPage, bundles);
+            addBundles(TYPE_JS, page.getValue().getJs(), JS_EXTENSION, bundlesOfPage, bundles);
+            pageBundles.put(page.getKey(), bundlesOfPage);
+        }
+
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(bundlesDirectory)) {
+            for (Path file : directoryStream) {
+                String fileName = file.getFileName().toString();
+                if (!bundleFiles.contains(fileName) && !INDEX_FILE_NAME.equals(fileName)) {
+                    Files.delete(file);
+                }
+            }
+        }
+        Map<String, Object> index = new LinkedHashMap<>();
+        index.put("pages", pageBundles);
+        index.put("bundles", bundles);
+        YamlUtils.write(bundlesDirectory.resolve(INDEX_FILE_NAME), index);
+        return bundles.size();
+    }
+
+    /**
+     * @return archive paths of the assets which are referred by pages but cannot be found, hence not bundled
+     */
+    public Set<String> getMissingAssets() {
+        return missingAssets;
+    }
+
+    /**
+     * @return archive paths of the CSS assets which contain {@code @import} rules, hence are served on their own
+     */
+    public Set<String> getImportingAssets() {
+        return importingAssets;
+    }
+
+    /**
+     * @return archive paths of the CSS assets which contain relative URLs, hence are served on their own
+     */
+    public Set<String> getRelativeUrlAssets() {
+        return relativeUrlAssets;
+    }
+
+    /**
+     * @return number of bundles which were written, i.e. which did not exist with the same content
+     */
+    public int getWrittenBundles() {
+        return writtenBundles;
+    }
+
+    private void addBundles(String type, Collection<String> assets, String extension,
+                            Map<String, Object> bundlesOfPage, Map<String, Object> bundles) throws IOException {
+        List<String> servedFiles = new ArrayList<>();
+        List<String> bundledAssets = new ArrayList<>();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (String asset : sortByDependencyOrder(assets)) {
+            Path file = application.resolveArchivePath(asset);
+            if (file == null || !Files.isRegularFile(file)) {
+                missingAssets.add(asset);
+                continue;
+            }
+            String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            if (CSS_EXTENSION.equals(extension)) {
+                String css = CSS_COMMENT_PATTERN.matcher(source).replaceAll("");
+                boolean bundleable = true;
+                // Browsers ignore @import rules which are not at the top, hence such CSS cannot be concatenated.
+                if (CSS_IMPORT_PATTERN.matcher(css).find()) {
+                    importingAssets.add(asset);
+                    bundleable = false;
+                } else if (hasRelativeUrl(css)) {
+                    // The runtime serves assets by URLs which do not mirror the feature layout, hence a relative URL
+                    // cannot be rewritten to refer to the same file from a bundle.
+                    relativeUrlAssets.add(asset);
+                    bundleable = false;
+                }
+                if (!bundleable) {
+                    // The asset is served on its own, between the bundles of the assets before and after it.
+                    addBundle(content, extension, bundledAssets, servedFiles, bundles);
+                    content = new ByteArrayOutputStream();
+                    bundledAssets = new ArrayList<>();
+                    servedFiles.add(asset);
+                    continue;
+                }
+            }
+            // Separate the assets, so that a missing semicolon or comment terminator does not leak into the next.
+            source = "/* " + asset.replace("*/", "*_/") + " */\n" + source + (JS_EXTENSION.equals(extension) ?
+                    "\n;\n" : "\n");
+            content.write(source.getBytes(StandardCharsets.UTF_8));
+            bundledAssets.add(asset);
+        }
+        addBundle(content, extension, bundledAssets, servedFiles, bundles);
+        if (!servedFiles.isEmpty()) {
+            bundlesOfPage.put(type, servedFiles);
+        }
+    }
+
+    private void addBundle(ByteArrayOutputStream content, String extension, List<String> bundledAssets,
+                           List<String> servedFiles, Map<String, Object> bundles) throws IOException {
+        if (bundledAssets.isEmpty()) {
+            return;
+        }
+        byte[] bytes = content.toByteArray();
+        String bundleFileName = HashUtils.sha256(bytes) + extension;
+        Path bundleFile = bundlesDirectory.resolve(bundleFileName);
+        if (!Files.isRegularFile(bundleFile)) {
+            Files.write(bundleFile, bytes);
+            writtenBundles++;
+        }
+        bundleFiles.add(bundleFileName);
+        String bundle = BUNDLES_DIR_NAME + "/" + bundleFileName;
+        servedFiles.add(bundle);
+        bundles.put(bundle, bundledAssets);
+    }
+
+    private List<String> sortByDependencyOrder(Collection<String> assets) {
+        final Map<String, Integer> ranks = new LinkedHashMap<>();
+        for (String asset : assets) {
+            ranks.put(asset, getRank(asset));
+        }
+        List<String> sortedAssets = new ArrayList<>(ranks.keySet());
+        // Stable sort keeps the page order of the assets with the same rank.
+        Collections.sort(sortedAssets, new Comparator<String>() {
+            @Override
+            public int compare(String asset1, String asset2) {
+                return Integer.compare(ranks.get(asset1), ranks.get(asset2));
+            }
+        });
+        return sortedAssets;
+    }
+
+    /**
+     * Ranks the owner of the given asset: themes first, then the dependent components in the dependency order,
+     * components which are not in the dependency tree and finally the root component.
+     */
+    private int getRank(String asset) {
+        String[] segments = asset.split("/", 3);
+        if (segments.length == 3 && Theme.THEMES_DIR_NAME.equals(segments[0])) {
+            return -1;
+        }
+        if (segments.length == 3 && Component.COMPONENTS_DIR_NAME.equals(segments[0])) {
+            Component component = application.getComponents().get(segments[1]);
+            return (component == null) ? dependencyOrder.size() : DependencyTree.indexOf(dependencyOrder, component);
+        }
+        // assets of the root component are at the top of the application
+        return Integer.MAX_VALUE;
+    }
+
+    private static boolean hasRelativeUrl(String css) {
+        Matcher matcher = CSS_URL_PATTERN.matcher(css);
+        while (matcher.find()) {
+            if (!ABSOLUTE_URL_PATTERN.matcher(matcher.group(2).trim()).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
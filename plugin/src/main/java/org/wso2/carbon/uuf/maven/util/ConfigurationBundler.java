@@ -0,0 +1,238 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates the {@code config.yaml}, {@code bindings.yaml} and {@code theme.yaml} files of an application and its
+ * dependencies, and merges them into a single configuration bundle. Configurations of the dependent components are
+ * merged in the order of the dependency tree, so that each component overrides the components it depends on, and are
+ * overridden by the configuration of the root component; nested maps are merged key by key.
+ */
+public class ConfigurationBundler {
+
+    private static final String KEY_THEME = "theme";
+    private static final String[] THEME_ASSET_KEYS = {"css", "headJs", "js"};
+
+    private final Application application;
+    private final List<String> dependencyOrder;
+    private final List<String> errors = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * @param application     application to bundle the configurations of
+     * @param dependencyOrder artifact IDs in dependency order, see {@link DependencyTree#readDependencyOrder(Path)}
+     */
+    public ConfigurationBundler(Application application, List<String> dependencyOrder) {
+        this.application = application;
+        this.dependencyOrder = dependencyOrder;
+    }
+
+    /**
+     * Checks whether the configuration files of an application and its dependencies are well-formed, so that all
+     * malformed files can be reported at once before the application is read.
+     *
+     * @param applicationDirectory  base directory of the application
+     * @param dependenciesDirectory directory where the dependent components and themes are extracted to
+     * @return errors of the malformed files
+     * @throws IOException if an error occurred while listing the dependencies
+     */
+    public static List<String> checkSyntax(Path applicationDirectory, Path dependenciesDirectory) throws IOException {
+        List<Path> directories = new ArrayList<>();
+        directories.add(applicationDirectory);
+        if (Files.isDirectory(dependenciesDirectory)) {
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dependenciesDirectory)) {
+                for (Path directory : directoryStream) {
+                    if (Files.isDirectory(directory)) {
+                        directories.add(directory);
+                    }
+                }
+            }
+        }
+        List<String> errors = new ArrayList<>();
+        for (Path directory : directories) {
+            for (String fileName : new String[]{Application.CONFIG_FILE_NAME, Application.BINDINGS_FILE_NAME,
+                    Theme.CONFIG_FILE_NAME}) {
+                try {
+                    YamlUtils.loadMap(directory.resolve(fileName));
+                } catch (IOException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Validates and merges the configurations of the application.
+     *
+     * @return merged configuration with the keys "theme", "config", "bindings" and "themes"
+     * @throws IOException if an error occurred while reading the configuration files
+     */
+    public Map<String, Object> bundle() throws IOException {
+        // Dependent components first, so that the root component overrides them.
+        List<Component> dependentComponents = new ArrayList<>();
+        for (Component component : application.getComponents().values()) {
+            if (component != application.getRootComponent()) {
+                dependentComponents.add(component);
+            }
+        }
+        List<Path> configDirectories = new ArrayList<>();
+        for (Component component : DependencyTree.sort(dependencyOrder, dependentComponents)) {
+            configDirectories.addAll(component.getDirectories());
+        }
+        List<Path> rootDirectories = new ArrayList<>(application.getRootComponent().getDirectories());
+        Collections.reverse(rootDirectories);
+        configDirectories.addAll(rootDirectories);
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        Map<String, List<String>> bindings = new LinkedHashMap<>();
+        for (Path directory : configDirectories) {
+            Path configFile = directory.resolve(Application.CONFIG_FILE_NAME);
+            Map<Object, Object> componentConfig = YamlUtils.loadMap(configFile);
+            Object theme = componentConfig.get(KEY_THEME);
+            if (theme != null && !(theme instanceof String)) {
+                errors.add("'" + KEY_THEME + "' in '" + configFile + "' should be a theme name.");
+            }
+            merge(componentConfig, config);
+            readBindings(directory.resolve(Application.BINDINGS_FILE_NAME), bindings);
+        }
+        validateBoundFragments(bindings);
+
+        Map<String, Object> themes = new LinkedHashMap<>();
+        for (Theme theme : application.getThemes().values()) {
+            themes.put(theme.getName(), readTheme(theme));
+        }
+        String themeName = application.getThemeName();
+        if (themeName != null && !application.getThemes().isEmpty() && !themes.containsKey(themeName)) {
+            warnings.add("Theme '" + themeName + "' is not a dependency of the application.");
+        }
+
+        Map<String, Object> bundle = new LinkedHashMap<>();
+        bundle.put(KEY_THEME, themeName);
+        bundle.put("config", config);
+        bundle.put("bindings", bindings);
+        bundle.put("themes", themes);
+        return bundle;
+    }
+
+    /**
+     * @return validation errors, which make the configuration unusable
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return validation warnings, e.g. references to missing files or fragments
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    private void readBindings(Path bindingsFile, Map<String, List<String>> bindings) throws IOException {
+        for (Map.Entry<Object, Object> entry : YamlUtils.loadMap(bindingsFile).entrySet()) {
+            if (isStringOrStringList(entry.getValue())) {
+                bindings.put(String.valueOf(entry.getKey()), YamlUtils.toStringList(entry.getValue()));
+            } else {
+                errors.add("Zone '" + entry.getKey() + "' in '" + bindingsFile + "' should be bound to a fragment " +
+                                   "name or a list of fragment names.");
+            }
+        }
+    }
+
+    private void validateBoundFragments(Map<String, List<String>> bindings) {
+        for (Map.Entry<String, List<String>> entry : bindings.entrySet()) {
+            for (String fragment : entry.getValue()) {
+                int lastDot = fragment.lastIndexOf('.');
+                Component owner = (lastDot < 0) ? application.getRootComponent() :
+                        application.findComponent(fragment.substring(0, lastDot));
+                if (owner == null || owner.getFragmentTemplate(fragment.substring(lastDot + 1)) == null) {
+                    warnings.add("Cannot find fragment '" + fragment + "' bound to zone '" + entry.getKey() + "'.");
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> readTheme(Theme theme) throws IOException {
+        Path themeFile = theme.getDirectory().resolve(Theme.CONFIG_FILE_NAME);
+        Map<Object, Object> themeConfig = YamlUtils.loadMap(themeFile);
+        Map<String, Object> assets = new LinkedHashMap<>();
+        for (String key : THEME_ASSET_KEYS) {
+            Object value = themeConfig.get(key);
+            if (!isStringOrStringList(value)) {
+                errors.add("'" + key + "' in '" + themeFile + "' should be a file name or a list of file names.");
+                continue;
+            }
+            List<String> files = YamlUtils.toStringList(value);
+            for (String file : files) {
+                if (!Files.isRegularFile(theme.getDirectory().resolve(Component.PUBLIC_DIR_NAME).resolve(file))) {
+                    warnings.add("Cannot find file '" + file + "' listed in '" + themeFile + "'.");
+                }
+            }
+            assets.put(key, files);
+        }
+        return assets;
+    }
+
+    private static boolean isStringOrStringList(Object value) {
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!(item instanceof String)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return (value == null) || (value instanceof String);
+    }
+
+    /**
+     * Merges the given source map into the given target map. Nested maps are merged recursively while other values of
+     * the source replace the values of the target.
+     */
+    @SuppressWarnings("unchecked")
+    private static void merge(Map<?, ?> source, Map<String, Object> target) {
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object value = entry.getValue();
+            Object existingValue = target.get(key);
+            if (value instanceof Map && existingValue instanceof Map) {
+                merge((Map<?, ?>) value, (Map<String, Object>) existingValue);
+            } else if (value instanceof Map) {
+                Map<String, Object> copy = new LinkedHashMap<>();
+                merge((Map<?, ?>) value, copy);
+                target.put(key, copy);
+            } else {
+                target.put(key, value);
+            }
+        }
+    }
+}
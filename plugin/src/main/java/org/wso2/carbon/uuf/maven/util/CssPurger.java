@@ -0,0 +1,362 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes the CSS rules whose selectors refer to classes or IDs which are never used by an application. A class or
+ * an ID is used if its name appears as a word in any template or client JS file of the application, or if it matches
+ * the safelist. The purge is conservative: rules with selectors which cannot be analyzed (e.g. escaped names), at-rules
+ * other than conditional group rules, and names inside functional pseudo-classes such as {@code :not(.active)} are
+ * always kept.
+ */
+public class CssPurger {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final Pattern SELECTOR_NAME_PATTERN = Pattern.compile("[.#](-?[_a-zA-Z][_a-zA-Z0-9-]*)");
+    private static final Set<String> SOURCE_EXTENSIONS = new HashSet<>(Arrays.asList(".hbs", ".js"));
+    private static final Set<String> GROUP_AT_RULES = new HashSet<>(Arrays.asList("media", "supports", "document",
+                                                                                  "-moz-document"));
+    private static final String BUILD_DIR_NAME = "target";
+
+    private final Set<String> usedNames;
+    private final List<Pattern> safelist;
+
+    /**
+     * @param usedNames class and ID names used by the application
+     * @param safelist  patterns of the class and ID names which should be kept even if they are not used
+     */
+    public CssPurger(Set<String> usedNames, List<Pattern> safelist) {
+        this.usedNames = usedNames;
+        this.safelist = safelist;
+    }
+
+    /**
+     * Reads the words which may be class or ID names from the templates ({@code .hbs}) and client JS files of all
+     * components of the given application and the JS files of its themes.
+     *
+     * @param application application to read
+     * @return used names
+     * @throws IOException if an error occurred while reading the files
+     */
+    public static Set<String> readUsedNames(Application application) throws IOException {
+        Set<String> usedNames = new HashSet<>();
+        for (Component component : application.getComponents().values()) {
+            for (Path directory : component.getDirectories()) {
+                readUsedNames(directory, usedNames);
+            }
+        }
+        for (Theme theme : application.getThemes().values()) {
+            readUsedNames(theme.getDirectory(), usedNames);
+        }
+        return usedNames;
+    }
+
+    private static void readUsedNames(final Path directory, final Set<String> usedNames) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                boolean isBuildDirectory = !dir.equals(directory) &&
+                        BUILD_DIR_NAME.equals(dir.getFileName().toString());
+                return isBuildDirectory ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String fileName = file.getFileName().toString();
+                int extensionIndex = fileName.lastIndexOf('.');
+                if (extensionIndex >= 0 && SOURCE_EXTENSIONS.contains(fileName.substring(extensionIndex))) {
+                    Matcher matcher = NAME_PATTERN.matcher(new String(Files.readAllBytes(file),
+                                                                      StandardCharsets.UTF_8));
+                    while (matcher.find()) {
+                        usedNames.add(matcher.group());
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Removes the unused rules from the given CSS file.
+     *
+     * @param cssFile CSS file to purge in place
+     * @return number of bytes removed
+     * @throws IOException if the file cannot be read or written
+     */
+    public long purge(Path cssFile) throws IOException {
+        byte[] original = Files.readAllBytes(cssFile);
+        byte[] purged = purge(new String(original, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        if (purged.length >= original.length) {
+            return 0;
+        }
+        Files.write(cssFile, purged);
+        return original.length - purged.length;
+    }
+
+    /**
+     * Removes the unused rules from the given CSS.
+     *
+     * @param css CSS to purge
+     * @return purged CSS
+     */
+    public String purge(String css) {
+        StringBuilder purgedCss = new StringBuilder(css.length());
+        purge(css, 0, css.length(), purgedCss);
+        return purgedCss.toString();
+    }
+
+    private void purge(String css, int start, int end, StringBuilder purgedCss) {
+        int position = start;
+        while (position < end) {
+            int statementStart = position;
+            position = skipWhitespaceAndComments(css, position, end);
+            purgedCss.append(css, statementStart, position);
+            if (position >= end) {
+                return;
+            }
+            int preludeEnd = findPreludeEnd(css, position, end);
+            if (preludeEnd >= end || css.charAt(preludeEnd) != '{') {
+                // a statement at-rule (e.g. @import) or a malformed rule, kept as it is
+                int statementEnd = Math.min(preludeEnd + 1, end);
+                purgedCss.append(css, position, statementEnd);
+                position = statementEnd;
+                continue;
+            }
+            int blockEnd = findBlockEnd(css, preludeEnd, end);
+            String prelude = css.substring(position, preludeEnd);
+            if (css.charAt(position) == '@') {
+                String atRuleName = prelude.substring(1).trim().split("[\\s(]", 2)[0].toLowerCase(Locale.ENGLISH);
+                if (GROUP_AT_RULES.contains(atRuleName)) {
+                    StringBuilder purgedBlock = new StringBuilder();
+                    purge(css, preludeEnd + 1, blockEnd, purgedBlock);
+                    if (hasRules(purgedBlock)) {
+                        purgedCss.append(prelude).append('{').append(purgedBlock).append('}');
+                    }
+                } else {
+                    purgedCss.append(css, position, Math.min(blockEnd + 1, end));
+                }
+            } else {
+                String keptSelectors = purgeSelectors(prelude);
+                if (keptSelectors != null) {
+                    purgedCss.append(keptSelectors).append(css, preludeEnd, Math.min(blockEnd + 1, end));
+                }
+            }
+            position = blockEnd + 1;
+        }
+    }
+
+    /**
+     * Removes the unused selectors from the given selector list.
+     *
+     * @return the selector list to keep, or {@code null} if none of the selectors is used
+     */
+    private String purgeSelectors(String selectorList) {
+        List<String> selectors = splitSelectors(selectorList);
+        List<String> keptSelectors = new ArrayList<>();
+        for (String selector : selectors) {
+            if (isUsed(selector)) {
+                keptSelectors.add(selector);
+            }
+        }
+        if (keptSelectors.size() == selectors.size()) {
+            return selectorList;
+        }
+        if (keptSelectors.isEmpty()) {
+            return null;
+        }
+        StringBuilder keptSelectorList = new StringBuilder();
+        for (String keptSelector : keptSelectors) {
+            keptSelectorList.append(keptSelectorList.length() == 0 ? "" : ",").append(keptSelector.trim());
+        }
+        return keptSelectorList.toString();
+    }
+
+    private boolean isUsed(String selector) {
+        if (selector.indexOf('\\') >= 0) {
+            return true;
+        }
+        // Names inside comments, strings, attribute selectors and functional pseudo-classes are not required to be
+        // used.
+        StringBuilder topLevelSelector = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipString(selector, i, selector.length()) - 1;
+            } else if (c == '/' && i + 1 < selector.length() && selector.charAt(i + 1) == '*') {
+                i = skipComment(selector, i, selector.length()) - 1;
+                topLevelSelector.append(' ');
+            } else if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (depth == 0) {
+                topLevelSelector.append(c);
+            }
+        }
+        Matcher matcher = SELECTOR_NAME_PATTERN.matcher(topLevelSelector);
+        while (matcher.find()) {
+            if (!isUsedName(matcher.group(1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isUsedName(String name) {
+        if (usedNames.contains(name)) {
+            return true;
+        }
+        for (Pattern pattern : safelist) {
+            if (pattern.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> splitSelectors(String selectorList) {
+        List<String> selectors = new ArrayList<>();
+        int depth = 0;
+        int selectorStart = 0;
+        for (int i = 0; i < selectorList.length(); i++) {
+            char c = selectorList.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipString(selectorList, i, selectorList.length()) - 1;
+            } else if (c == '/' && i + 1 < selectorList.length() && selectorList.charAt(i + 1) == '*') {
+                i = skipComment(selectorList, i, selectorList.length()) - 1;
+            } else if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                selectors.add(selectorList.substring(selectorStart, i));
+                selectorStart = i + 1;
+            }
+        }
+        selectors.add(selectorList.substring(selectorStart));
+        return selectors;
+    }
+
+    private static boolean hasRules(CharSequence css) {
+        String content = css.toString();
+        int position = skipWhitespaceAndComments(content, 0, content.length());
+        return position < content.length();
+    }
+
+    /**
+     * Finds the end of the prelude starting at the given position, i.e. the index of the opening brace of the block,
+     * the semicolon which ends a statement, or the given end.
+     */
+    private static int findPreludeEnd(String css, int position, int end) {
+        while (position < end) {
+            char c = css.charAt(position);
+            if (c == '{' || c == ';' || c == '}') {
+                return position;
+            } else if (c == '"' || c == '\'') {
+                position = skipString(css, position, end);
+            } else if (c == '/' && position + 1 < end && css.charAt(position + 1) == '*') {
+                position = skipComment(css, position, end);
+            } else {
+                position++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Finds the closing brace of the block opened at the given position, or the given end if the block is not closed.
+     */
+    private static int findBlockEnd(String css, int openBrace, int end) {
+        int depth = 0;
+        int position = openBrace;
+        while (position < end) {
+            char c = css.charAt(position);
+            if (c == '"' || c == '\'') {
+                position = skipString(css, position, end);
+                continue;
+            } else if (c == '/' && position + 1 < end && css.charAt(position + 1) == '*') {
+                position = skipComment(css, position, end);
+                continue;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return position;
+            }
+            position++;
+        }
+        return end;
+    }
+
+    private static int skipWhitespaceAndComments(String css, int position, int end) {
+        while (position < end) {
+            char c = css.charAt(position);
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (c == '/' && position + 1 < end && css.charAt(position + 1) == '*') {
+                position = skipComment(css, position, end);
+            } else {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static int skipComment(String css, int position, int end) {
+        int commentEnd = css.indexOf("*/", position + 2);
+        return (commentEnd < 0 || commentEnd + 2 > end) ? end : commentEnd + 2;
+    }
+
+    private static int skipString(String css, int position, int end) {
+        char quote = css.charAt(position);
+        position++;
+        while (position < end) {
+            char c = css.charAt(position);
+            if (c == '\\') {
+                position += 2;
+            } else if (c == quote || c == '\n') {
+                return position + 1;
+            } else {
+                position++;
+            }
+        }
+        return end;
+    }
+}
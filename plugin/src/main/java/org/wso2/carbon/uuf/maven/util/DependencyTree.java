@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the {@code dependency.tree} file written by the dependency plugin's {@code tree} goal, e.g.
+ * <pre>
+ * org.wso2.uuf.sample:org.wso2.uuf.sample.app:carbon-feature:1.0.0
+ * +- org.wso2.uuf.sample:org.wso2.uuf.sample.foundation:zip:1.0.0:compile
+ * |  \- (org.wso2.uuf.sample:org.wso2.uuf.sample.commons:zip:1.0.0:compile - omitted for duplicate)
+ * \- org.wso2.uuf.sample:org.wso2.uuf.sample.theme.default:tar:1.0.0:compile
+ * </pre>
+ */
+public class DependencyTree {
+
+    public static final String FILE_NAME = "dependency.tree";
+    private static final int INDENTATION = 3;
+
+    private DependencyTree() {
+    }
+
+    /**
+     * Reads the artifact IDs in the given dependency tree in dependency order, i.e. each artifact comes after all
+     * artifacts it depends on and the project itself comes last. Entries which refer back to one of their ancestors
+     * (cycles) and lines which are not artifact coordinates are ignored.
+     *
+     * @param dependencyTree dependency tree file
+     * @return artifact IDs in dependency order; an empty list if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public static List<String> readDependencyOrder(Path dependencyTree) throws IOException {
+        Set<String> artifactIds = new LinkedHashSet<>();
+        if (!Files.isRegularFile(dependencyTree)) {
+            return new ArrayList<>(artifactIds);
+        }
+        Deque<String> ancestors = new ArrayDeque<>();
+        for (String line : Files.readAllLines(dependencyTree, StandardCharsets.UTF_8)) {
+            int start = 0;
+            while (start < line.length() && "+-\\| ".indexOf(line.charAt(start)) >= 0) {
+                start++;
+            }
+            String[] coordinates = line.substring(start).replace("(", "").split(":");
+            if (coordinates.length < 2) {
+                continue;
+            }
+            int depth = start / INDENTATION;
+            while (ancestors.size() > depth) {
+                artifactIds.add(ancestors.pop());
+            }
+            String artifactId = coordinates[1].trim();
+            if (ancestors.contains(artifactId)) {
+                // Adding it here would place the artifact before the artifacts it depends on.
+                continue;
+            }
+            ancestors.push(artifactId);
+        }
+        while (!ancestors.isEmpty()) {
+            artifactIds.add(ancestors.pop());
+        }
+        return new ArrayList<>(artifactIds);
+    }
+
+    /**
+     * Finds the position of the given component in the given dependency order.
+     *
+     * @param dependencyOrder artifact IDs in dependency order, see {@link #readDependencyOrder(Path)}
+     * @param component       component to find
+     * @return index of the first artifact ID which refers to the component, or the size of the dependency order if
+     * none does
+     */
+    public static int indexOf(List<String> dependencyOrder, Component component) {
+        for (int i = 0; i < dependencyOrder.size(); i++) {
+            if (component.isReferredBy(dependencyOrder.get(i))) {
+                return i;
+            }
+        }
+        return dependencyOrder.size();
+    }
+
+    /**
+     * Sorts the given components in the given dependency order. Components which are not in the dependency order come
+     * last, in their given order.
+     *
+     * @param dependencyOrder artifact IDs in dependency order, see {@link #readDependencyOrder(Path)}
+     * @param components      components to sort
+     * @return sorted components
+     */
+    public static List<Component> sort(final List<String> dependencyOrder, Collection<Component> components) {
+        List<Component> sortedComponents = new ArrayList<>(components);
+        // Stable sort keeps the given order of the components with the same index.
+        Collections.sort(sortedComponents, new Comparator<Component>() {
+            @Override
+            public int compare(Component component1, Component component2) {
+                return Integer.compare(indexOf(dependencyOrder, component1), indexOf(dependencyOrder, component2));
+            }
+        });
+        return sortedComponents;
+    }
+}
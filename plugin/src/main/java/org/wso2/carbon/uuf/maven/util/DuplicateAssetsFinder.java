@@ -0,0 +1,101 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Finds the public assets which are bundled more than once in an application, e.g. the same library vendored by
+ * several components and themes. Files are first grouped by size and only the files sharing a size are hashed.
+ */
+public class DuplicateAssetsFinder {
+
+    private final Application application;
+
+    public DuplicateAssetsFinder(Application application) {
+        this.application = application;
+    }
+
+    /**
+     * Finds the duplicate public assets of all components and themes of the application.
+     *
+     * @return content hashes mapped to the archive paths and files of the identical assets; only contents which
+     * appear more than once are included
+     * @throws IOException if an error occurred while reading the files
+     */
+    public SortedMap<String, SortedMap<String, Path>> find() throws IOException {
+        Map<Long, SortedMap<String, Path>> filesBySize = new HashMap<>();
+        for (Component component : application.getComponents().values()) {
+            for (Map.Entry<String, Path> entry : component.getPublicFiles().entrySet()) {
+                addFile(component.getArchivePath(entry.getKey()), entry.getValue(), filesBySize);
+            }
+        }
+        for (Theme theme : application.getThemes().values()) {
+            for (Map.Entry<String, Path> entry : theme.getPublicFiles().entrySet()) {
+                addFile(theme.getArchivePath(entry.getKey()), entry.getValue(), filesBySize);
+            }
+        }
+
+        SortedMap<String, SortedMap<String, Path>> filesByHash = new TreeMap<>();
+        for (SortedMap<String, Path> files : filesBySize.values()) {
+            if (files.size() < 2) {
+                continue;
+            }
+            for (Map.Entry<String, Path> entry : files.entrySet()) {
+                String hash = HashUtils.sha256(entry.getValue());
+                SortedMap<String, Path> identicalFiles = filesByHash.get(hash);
+                if (identicalFiles == null) {
+                    identicalFiles = new TreeMap<>();
+                    filesByHash.put(hash, identicalFiles);
+                }
+                identicalFiles.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        SortedMap<String, SortedMap<String, Path>> duplicates = new TreeMap<>();
+        for (Map.Entry<String, SortedMap<String, Path>> entry : filesByHash.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                duplicates.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return duplicates;
+    }
+
+    private static void addFile(String archivePath, Path file, Map<Long, SortedMap<String, Path>> filesBySize)
+            throws IOException {
+        long size = Files.size(file);
+        if (size == 0) {
+            return;
+        }
+        SortedMap<String, Path> files = filesBySize.get(size);
+        if (files == null) {
+            files = new TreeMap<>();
+            filesBySize.put(size, files);
+        }
+        files.put(archivePath, file);
+    }
+}
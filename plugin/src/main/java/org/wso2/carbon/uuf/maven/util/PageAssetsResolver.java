@@ -0,0 +1,195 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resolves the layouts, fragments and assets of each page in an application by following the UUF helpers in the
+ * templates ({@code layout}, {@code fragment}, {@code defineZone} with the bindings, {@code css}, {@code headJs},
+ * {@code js} and {@code favicon}) through the root component, the dependent components and the active theme.
+ */
+public class PageAssetsResolver {
+
+    private static final String IMAGES_DIR_NAME = "images";
+
+    private final Application application;
+    private final Set<String> unresolvedReferences = new TreeSet<>();
+    private final Set<String> dynamicReferences = new TreeSet<>();
+
+    public PageAssetsResolver(Application application) {
+        this.application = application;
+    }
+
+    /**
+     * Resolves the assets of all pages of the application.
+     *
+     * @return archive paths of the pages mapped to their assets, ordered by component and page path
+     * @throws IOException if an error occurred while reading the templates
+     */
+    public Map<String, PageAssets> resolve() throws IOException {
+        Map<String, PageAssets> pages = new LinkedHashMap<>();
+        for (Component component : application.getComponents().values()) {
+            for (Map.Entry<String, Path> page : component.getPages().entrySet()) {
+                pages.put(component.getArchivePath(page.getKey()), resolvePage(component, page.getValue()));
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Resolves the fragments and assets reached from the given fragment. A simple fragment name refers to a fragment
+     * of the root component.
+     *
+     * @param fragment (possibly fully qualified) fragment name
+     * @return the fragment, its nested fragments and their assets
+     * @throws IOException if an error occurred while reading the templates
+     */
+    public PageAssets resolveFragment(String fragment) throws IOException {
+        PageAssets pageAssets = new PageAssets();
+        visitFragment(application.getRootComponent(), fragment, pageAssets, new HashSet<Path>());
+        return pageAssets;
+    }
+
+    /**
+     * @return references (e.g. "fragment org.wso2.uuf.sample.foundation.footer") which could not be resolved
+     */
+    public Set<String> getUnresolvedReferences() {
+        return unresolvedReferences;
+    }
+
+    /**
+     * @return helper calls with a non-literal argument, which cannot be followed, with the archive path of their
+     * template (e.g. "fragment someVar in pages/index.hbs"); see {@link TemplateReferences#getDynamicReferences()}
+     */
+    public Set<String> getDynamicReferences() {
+        return dynamicReferences;
+    }
+
+    private PageAssets resolvePage(Component component, Path template) throws IOException {
+        PageAssets pageAssets = new PageAssets();
+        Theme theme = application.getActiveTheme();
+        if (theme != null) {
+            for (String css : theme.getCss()) {
+                pageAssets.getCss().add(theme.getArchivePath(Component.PUBLIC_DIR_NAME + "/" + css));
+            }
+            for (String headJs : theme.getHeadJs()) {
+                pageAssets.getHeadJs().add(theme.getArchivePath(Component.PUBLIC_DIR_NAME + "/" + headJs));
+            }
+            for (String js : theme.getJs()) {
+                pageAssets.getJs().add(theme.getArchivePath(Component.PUBLIC_DIR_NAME + "/" + js));
+            }
+        }
+        visitTemplate(component, Component.PUBLIC_DIR_NAME, template, pageAssets, new HashSet<Path>());
+        return pageAssets;
+    }
+
+    private void visitTemplate(Component component, String publicPath, Path template, PageAssets pageAssets,
+                               Set<Path> visitedTemplates) throws IOException {
+        if (!visitedTemplates.add(template)) {
+            return;
+        }
+        TemplateReferences references = TemplateReferences.read(template);
+        for (String dynamicReference : references.getDynamicReferences()) {
+            dynamicReferences.add(dynamicReference + " in " + getArchivePath(component, template));
+        }
+        for (String layout : references.get(TemplateReferences.HELPER_LAYOUT)) {
+            Component owner = findOwner(component, layout);
+            Path layoutTemplate = (owner == null) ? null : owner.getLayoutTemplate(getSimpleName(layout));
+            if (layoutTemplate == null) {
+                unresolvedReferences.add(TemplateReferences.HELPER_LAYOUT + " " + layout);
+                continue;
+            }
+            pageAssets.getLayouts().add(owner.getArchivePath(owner.getLayoutPath(getSimpleName(layout))));
+            visitTemplate(owner, Component.PUBLIC_DIR_NAME, layoutTemplate, pageAssets, visitedTemplates);
+        }
+        for (String css : references.get(TemplateReferences.HELPER_CSS)) {
+            pageAssets.getCss().add(component.getArchivePath(publicPath + "/" + css));
+        }
+        for (String headJs : references.get(TemplateReferences.HELPER_HEAD_JS)) {
+            pageAssets.getHeadJs().add(component.getArchivePath(publicPath + "/" + headJs));
+        }
+        for (String js : references.get(TemplateReferences.HELPER_JS)) {
+            pageAssets.getJs().add(component.getArchivePath(publicPath + "/" + js));
+        }
+        for (String favicon : references.get(TemplateReferences.HELPER_FAVICON)) {
+            pageAssets.getImages().add(component.getArchivePath(publicPath + "/" + favicon));
+        }
+        for (String fragment : references.get(TemplateReferences.HELPER_FRAGMENT)) {
+            visitFragment(component, fragment, pageAssets, visitedTemplates);
+        }
+        for (String zone : references.get(TemplateReferences.HELPER_DEFINE_ZONE)) {
+            for (String fragment : application.getBoundFragments(zone)) {
+                visitFragment(application.getRootComponent(), fragment, pageAssets, visitedTemplates);
+            }
+        }
+    }
+
+    private void visitFragment(Component component, String fragment, PageAssets pageAssets,
+                               Set<Path> visitedTemplates) throws IOException {
+        Component owner = findOwner(component, fragment);
+        String fragmentName = getSimpleName(fragment);
+        Path fragmentTemplate = (owner == null) ? null : owner.getFragmentTemplate(fragmentName);
+        if (fragmentTemplate == null) {
+            unresolvedReferences.add(TemplateReferences.HELPER_FRAGMENT + " " + fragment);
+            return;
+        }
+        String fragmentPath = owner.getFragmentPath(fragmentName);
+        if (!pageAssets.getFragments().add(owner.getArchivePath(fragmentPath))) {
+            return;
+        }
+        String fragmentPublicPath = fragmentPath + "/" + Component.PUBLIC_DIR_NAME;
+        for (String image : owner.listFiles(fragmentPublicPath + "/" + IMAGES_DIR_NAME).keySet()) {
+            pageAssets.getImages().add(owner.getArchivePath(image));
+        }
+        visitTemplate(owner, fragmentPublicPath, fragmentTemplate, pageAssets, visitedTemplates);
+    }
+
+    /**
+     * Finds the component which owns the given layout or fragment. A simple name (e.g. "thumbnail") refers to the
+     * current component while a fully qualified name (e.g. "org.wso2.uuf.sample.foundation.footer") refers to the
+     * component named by its prefix.
+     */
+    private Component findOwner(Component current, String reference) {
+        int lastDot = reference.lastIndexOf('.');
+        return (lastDot < 0) ? current : application.findComponent(reference.substring(0, lastDot));
+    }
+
+    private static String getArchivePath(Component component, Path file) {
+        for (Path directory : component.getDirectories()) {
+            if (file.startsWith(directory)) {
+                return component.getArchivePath(directory.relativize(file).toString().replace('\\', '/'));
+            }
+        }
+        return file.toString();
+    }
+
+    private static String getSimpleName(String reference) {
+        return reference.substring(reference.lastIndexOf('.') + 1);
+    }
+}
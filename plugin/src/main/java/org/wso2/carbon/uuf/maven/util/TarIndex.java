@@ -0,0 +1,378 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An index of the entry offsets of an uncompressed tar archive, which allows to read any entry without scanning the
+ * archive. The index is embedded as the last entry ({@value #INDEX_ENTRY_NAME}) of the archive, hence the archive
+ * stays a valid tar for other tools. The index ends with a trailer line holding the offset and the length of the
+ * index, so that it can be located by reading only the tail of the archive.
+ * <p>
+ * Index format (UTF-8): a header line, one {@code <offset>\t<size>\t<f|d>\t<name>} line per entry and the trailer
+ * line {@code #uuf-tar-index <offset> <length>}, where offset and length locate the index content before the
+ * trailer.
+ */
+public class TarIndex {
+
+    public static final String INDEX_ENTRY_NAME = ".uuf-tar-index";
+    private static final String HEADER_LINE = "# UUF tar index v1\n";
+    private static final String TRAILER_PREFIX = "#uuf-tar-index ";
+    private static final String TYPE_FILE = "f";
+    private static final String TYPE_DIRECTORY = "d";
+    private static final int BLOCK_SIZE = 512;
+    private static final int MAX_TAIL_SIZE = 64 * 1024;
+
+    private final List<Entry> entries;
+
+    private TarIndex(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Creates an index for the given tar archive by scanning it once.
+     *
+     * @param tarFile tar archive to index
+     * @return index of the archive, or {@code null} if the archive contains entries which are neither regular files
+     * nor directories (e.g. links), which cannot be extracted by offset
+     * @throws IOException if the archive cannot be read
+     */
+    public static TarIndex create(Path tarFile) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (TarArchiveInputStream tarInputStream = new TarArchiveInputStream(
+                new BufferedInputStream(Files.newInputStream(tarFile)))) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInputStream.getNextTarEntry()) != null) {
+                if (INDEX_ENTRY_NAME.equals(tarEntry.getName())) {
+                    continue;
+                }
+                // Links and special files are reported as files by TarArchiveEntry.isFile(), hence checked explicitly.
+                boolean special = tarEntry.isSymbolicLink() || tarEntry.isLink() || tarEntry.isCharacterDevice() ||
+                        tarEntry.isBlockDevice() || tarEntry.isFIFO();
+                if (special || (!tarEntry.isFile() && !tarEntry.isDirectory())) {
+                    return null;
+                }
+                // After reading the header(s) of an entry, the stream is positioned at the content of the entry.
+                entries.add(new Entry(tarEntry.getName(), tarEntry.isDirectory(), tarInputStream.getBytesRead(),
+                                      tarEntry.getSize()));
+            }
+        }
+        return new TarIndex(entries);
+    }
+
+    /**
+     * Reads the index embedded in the given tar archive.
+     *
+     * @param tarFile tar archive
+     * @return embedded index or {@code null} if the archive is not indexed
+     * @throws IOException if the archive cannot be read or the index is corrupted
+     */
+    public static TarIndex read(Path tarFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(tarFile, StandardOpenOption.READ)) {
+            int tailSize = (int) Math.min(channel.size(), MAX_TAIL_SIZE);
+            byte[] tail = readFully(channel, channel.size() - tailSize, tailSize);
+            // Skip the zero blocks which mark the end of the archive.
+            int end = tail.length;
+            while (end > 0 && tail[end - 1] == 0) {
+                end--;
+            }
+            int start = end - 1;
+            while (start > 0 && tail[start - 1] != '\n') {
+                start--;
+            }
+            if (start < 0) {
+                return null;
+            }
+            String trailer = new String(tail, start, end - start, StandardCharsets.UTF_8).trim();
+            if (!trailer.startsWith(TRAILER_PREFIX)) {
+                return null;
+            }
+            String[] location = trailer.substring(TRAILER_PREFIX.length()).split(" ");
+            long offset;
+            int length;
+            try {
+                offset = Long.parseLong(location[0]);
+                length = Integer.parseInt(location[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Corrupted index trailer '" + trailer + "' in tar archive '" + tarFile + "'.");
+            }
+            if (!isInArchive(offset, length, channel.size())) {
+                throw new IOException("Index trailer '" + trailer + "' points outside of tar archive '" + tarFile +
+                                              "'.");
+            }
+            String content = new String(readFully(channel, offset, length), StandardCharsets.UTF_8);
+            if (!content.startsWith(HEADER_LINE)) {
+                throw new IOException("Corrupted index in tar archive '" + tarFile + "'.");
+            }
+            return new TarIndex(parseEntries(content.substring(HEADER_LINE.length()), channel.size(), tarFile));
+        }
+    }
+
+    private static List<Entry> parseEntries(String content, long archiveSize, Path tarFile) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t", 4);
+            Entry entry;
+            try {
+                entry = new Entry(fields[3], TYPE_DIRECTORY.equals(fields[2]), Long.parseLong(fields[0]),
+                                  Long.parseLong(fields[1]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Corrupted index entry '" + line + "' in tar archive '" + tarFile + "'.");
+            }
+            if (!isInArchive(entry.getOffset(), entry.getSize(), archiveSize)) {
+                throw new IOException("Index entry '" + line + "' points outside of tar archive '" + tarFile + "'.");
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Embeds this index into the given tar archive as its last entry, replacing the end-of-archive marker.
+     *
+     * @param tarFile tar archive which this index was created for
+     * @throws IOException if the archive cannot be written
+     */
+    public void appendTo(Path tarFile) throws IOException {
+        long endOfEntries = 0;
+        for (Entry entry : entries) {
+            endOfEntries = Math.max(endOfEntries, entry.getOffset() + roundUpToBlock(entry.getSize()));
+        }
+        try (FileChannel channel = FileChannel.open(tarFile, StandardOpenOption.WRITE)) {
+            channel.truncate(endOfEntries);
+        }
+
+        StringBuilder content = new StringBuilder(HEADER_LINE);
+        for (Entry entry : entries) {
+            content.append(entry.getOffset()).append('\t')
+                    .append(entry.getSize()).append('\t')
+                    .append(entry.isDirectory() ? TYPE_DIRECTORY : TYPE_FILE).append('\t')
+                    .append(entry.getName()).append('\n');
+        }
+        byte[] indexContent = content.toString().getBytes(StandardCharsets.UTF_8);
+        // The index entry has a short ASCII name, hence its content starts right after its single header block.
+        long indexOffset = endOfEntries + BLOCK_SIZE;
+        byte[] trailer = (TRAILER_PREFIX + indexOffset + " " + indexContent.length + "\n").getBytes(
+                StandardCharsets.UTF_8);
+
+        try (OutputStream outputStream = Files.newOutputStream(tarFile, StandardOpenOption.APPEND);
+             TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(outputStream)) {
+            TarArchiveEntry indexEntry = new TarArchiveEntry(INDEX_ENTRY_NAME);
+            indexEntry.setSize(indexContent.length + trailer.length);
+            tarOutputStream.putArchiveEntry(indexEntry);
+            tarOutputStream.write(indexContent);
+            tarOutputStream.write(trailer);
+            tarOutputStream.closeArchiveEntry();
+            tarOutputStream.finish();
+        }
+    }
+
+    /**
+     * Extracts the given tar archive into the given directory using this index. Directories are created first and
+     * then the files are copied in parallel, each directly from its offset in the archive. As with a sequential
+     * extraction, when several entries are extracted to the same path the last one of them wins.
+     *
+     * @param tarFile     tar archive which this index belongs to
+     * @param destination directory to extract to
+     * @param threads     number of threads to use
+     * @throws IOException if an error occurred while extracting
+     */
+    public void extract(Path tarFile, final Path destination, int threads) throws IOException {
+        final Path normalizedDestination = destination.toAbsolutePath().normalize();
+        // Entries extracted to the same path must not be written concurrently, hence only the last one is kept.
+        Map<Path, Entry> lastEntries = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            Path target = resolve(normalizedDestination, entry.getName());
+            lastEntries.remove(target);
+            lastEntries.put(target, entry);
+        }
+        List<Entry> files = new ArrayList<>();
+        for (Map.Entry<Path, Entry> lastEntry : lastEntries.entrySet()) {
+            Path target = lastEntry.getKey();
+            if (lastEntry.getValue().isDirectory()) {
+                Files.createDirectories(target);
+            } else {
+                Files.createDirectories(target.getParent());
+                files.add(lastEntry.getValue());
+            }
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (final FileChannel channel = FileChannel.open(tarFile, StandardOpenOption.READ)) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final Entry entry : files) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        extractFile(channel, entry, resolve(normalizedDestination, entry.getName()));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw (cause instanceof IOException) ? (IOException) cause :
+                            new IOException("Cannot extract tar archive '" + tarFile + "'.", cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while extracting tar archive '" + tarFile + "'.", e);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the content of the given file entry of the given tar archive.
+     *
+     * @param tarFile tar archive which this index belongs to
+     * @param name    name of the entry
+     * @return content of the last entry with the given name, or {@code null} if there is no such file in the archive
+     * @throws IOException if the archive cannot be read or the entry is too large to be read into memory
+     */
+    public byte[] readEntry(Path tarFile, String name) throws IOException {
+        Entry file = null;
+        for (Entry entry : entries) {
+            if (!entry.isDirectory() && entry.getName().equals(name)) {
+                file = entry;
+            }
+        }
+        if (file == null) {
+            return null;
+        }
+        if (file.getSize() > Integer.MAX_VALUE) {
+            throw new IOException("Tar entry '" + name + "' is too large to be read into memory.");
+        }
+        try (FileChannel channel = FileChannel.open(tarFile, StandardOpenOption.READ)) {
+            return readFully(channel, file.getOffset(), (int) file.getSize());
+        }
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    private static void extractFile(FileChannel channel, Entry entry, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < entry.getSize()) {
+                long transferred = channel.transferTo(entry.getOffset() + position, entry.getSize() - position, out);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of tar archive while extracting '" + entry.getName() + "'.");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private static Path resolve(Path destination, String name) throws IOException {
+        Path target = destination.resolve(name).normalize();
+        if (!target.startsWith(destination)) {
+            throw new IOException("Tar entry '" + name + "' is outside of the extraction directory.");
+        }
+        return target;
+    }
+
+    private static boolean isInArchive(long offset, long length, long archiveSize) {
+        return (offset >= 0) && (length >= 0) && (offset <= archiveSize) && (length <= archiveSize - offset);
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        if (!isInArchive(position, length, channel.size())) {
+            throw new IOException("Cannot read " + length + " bytes at offset " + position + " of a tar archive of " +
+                                          channel.size() + " bytes.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of tar archive.");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static long roundUpToBlock(long size) {
+        return ((size + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+    }
+
+    /**
+     * An entry of an indexed tar archive.
+     */
+    public static class Entry {
+        private final String name;
+        private final boolean directory;
+        private final long offset;
+        private final long size;
+
+        public Entry(String name, boolean directory, long offset, long size) {
+            this.name = name;
+            this.directory = directory;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return offset of the content of this entry in the archive
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * References made by a UUF Handlebars template through the UUF helpers, e.g. {@code {{fragment "name"}}} or
+ * {@code {{css "css/styles.css"}}}. Only literal string arguments can be followed; the {@code fragment},
+ * {@code layout} and {@code defineZone} helpers called with any other argument (e.g. a variable or a sub expression)
+ * are recorded as dynamic references.
+ */
+public class TemplateReferences {
+
+    public static final String HELPER_FRAGMENT = "fragment";
+    public static final String HELPER_LAYOUT = "layout";
+    public static final String HELPER_DEFINE_ZONE = "defineZone";
+    public static final String HELPER_CSS = "css";
+    public static final String HELPER_HEAD_JS = "headJs";
+    public static final String HELPER_JS = "js";
+    public static final String HELPER_FAVICON = "favicon";
+
+    private static final Pattern HELPER_PATTERN = Pattern.compile(
+            "\\{\\{\\s*#?\\s*(" + HELPER_FRAGMENT + "|" + HELPER_LAYOUT + "|" + HELPER_DEFINE_ZONE + "|" +
+                    HELPER_CSS + "|" + HELPER_HEAD_JS + "|" + HELPER_JS + "|" + HELPER_FAVICON +
+                    ")\\s+[\"']([^\"']+)[\"']");
+    private static final Pattern DYNAMIC_HELPER_PATTERN = Pattern.compile(
+            "\\{\\{\\s*#?\\s*(" + HELPER_FRAGMENT + "|" + HELPER_LAYOUT + "|" + HELPER_DEFINE_ZONE +
+                    ")\\s+([^\"'\\s}][^\\s}]*)");
+
+    private final Map<String, List<String>> references;
+    private final List<String> dynamicReferences;
+
+    private TemplateReferences(Map<String, List<String>> references, List<String> dynamicReferences) {
+        this.references = references;
+        this.dynamicReferences = dynamicReferences;
+    }
+
+    /**
+     * Reads the helper references of the given template.
+     *
+     * @param template template file
+     * @return references of the template
+     * @throws IOException if the template cannot be read
+     */
+    public static TemplateReferences read(Path template) throws IOException {
+        return parse(new String(Files.readAllBytes(template), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the helper references of the given template content.
+     *
+     * @param content template content
+     * @return references of the template
+     */
+    public static TemplateReferences parse(String content) {
+        Map<String, List<String>> references = new LinkedHashMap<>();
+        Matcher matcher = HELPER_PATTERN.matcher(content);
+        while (matcher.find()) {
+            String helper = matcher.group(1);
+            List<String> arguments = references.get(helper);
+            if (arguments == null) {
+                arguments = new ArrayList<>();
+                references.put(helper, arguments);
+            }
+            arguments.add(matcher.group(2).trim());
+        }
+        List<String> dynamicReferences = new ArrayList<>();
+        Matcher dynamicMatcher = DYNAMIC_HELPER_PATTERN.matcher(content);
+        while (dynamicMatcher.find()) {
+            dynamicReferences.add(dynamicMatcher.group(1) + " " + dynamicMatcher.group(2));
+        }
+        return new TemplateReferences(references, dynamicReferences);
+    }
+
+    /**
+     * Returns the literal arguments passed to the given helper, in the order they appear in the template.
+     *
+     * @param helper helper name
+     * @return arguments of the helper
+     */
+    public List<String> get(String helper) {
+        List<String> arguments = references.get(helper);
+        return (arguments == null) ? Collections.<String>emptyList() : arguments;
+    }
+
+    /**
+     * Returns the {@code fragment}, {@code layout} and {@code defineZone} helper calls whose argument is not a literal
+     * string, hence cannot be resolved when packaging.
+     *
+     * @return helper calls, e.g. "fragment someVar", in the order they appear in the template
+     */
+    public List<String> getDynamicReferences() {
+        return dynamicReferences;
+    }
+}
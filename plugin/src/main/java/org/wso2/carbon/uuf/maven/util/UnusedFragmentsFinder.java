@@ -0,0 +1,201 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.Component;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+import org.wso2.carbon.uuf.maven.model.Theme;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the fragments of an application which cannot be reached from any page. Pages of all components, fragments
+ * bound to zones in the bindings, fragments rendered by client JS ({@code UUFClient.renderFragment}) and explicitly
+ * kept fragments are considered as entry points. References which cannot be followed, i.e. helper calls and
+ * {@code renderFragment} calls with a non-literal name and references to missing fragments or layouts, are recorded,
+ * since the fragments they reach cannot be known.
+ */
+public class UnusedFragmentsFinder {
+
+    private static final String JS_EXTENSION = ".js";
+    private static final Pattern RENDER_FRAGMENT_PATTERN = Pattern.compile("renderFragment\\s*\\(\\s*([^,)]*)");
+    private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("([\"'])([^\"']+)\\1");
+
+    private final Application application;
+    private final Collection<String> keptFragments;
+    private final Set<String> unresolvedReferences = new TreeSet<>();
+    private final Set<String> dynamicReferences = new TreeSet<>();
+
+    /**
+     * @param application   application to analyze
+     * @param keptFragments (possibly fully qualified) names of the fragments which should always be considered as
+     *                      reachable, e.g. fragments which are only referenced dynamically
+     */
+    public UnusedFragmentsFinder(Application application, Collection<String> keptFragments) {
+        this.application = application;
+        this.keptFragments = keptFragments;
+    }
+
+    /**
+     * Finds the unreachable fragments.
+     *
+     * @return archive paths of the unreachable fragments mapped to their directories, sorted by archive path
+     * @throws IOException if an error occurred while reading the application
+     */
+    public SortedMap<String, List<Path>> find() throws IOException {
+        PageAssetsResolver resolver = new PageAssetsResolver(application);
+        Set<String> reachableFragments = new HashSet<>();
+        for (PageAssets pageAssets : resolver.resolve().values()) {
+            reachableFragments.addAll(pageAssets.getFragments());
+        }
+        for (List<String> boundFragments : application.getBindings().values()) {
+            for (String fragment : boundFragments) {
+                reachableFragments.addAll(resolver.resolveFragment(fragment).getFragments());
+            }
+        }
+        for (String fragment : findRenderedFragments()) {
+            reachableFragments.addAll(resolver.resolveFragment(fragment).getFragments());
+        }
+        for (String fragment : keptFragments) {
+            reachableFragments.addAll(resolver.resolveFragment(fragment).getFragments());
+        }
+        unresolvedReferences.addAll(resolver.getUnresolvedReferences());
+        dynamicReferences.addAll(resolver.getDynamicReferences());
+
+        SortedMap<String, List<Path>> unusedFragments = new TreeMap<>();
+        for (Component component : application.getComponents().values()) {
+            for (String fragmentName : component.getFragmentNames()) {
+                String fragmentPath = component.getFragmentPath(fragmentName);
+                String archivePath = component.getArchivePath(fragmentPath);
+                if (reachableFragments.contains(archivePath)) {
+                    continue;
+                }
+                List<Path> fragmentDirectories = new ArrayList<>();
+                for (Path directory : component.getDirectories()) {
+                    Path fragmentDirectory = directory.resolve(fragmentPath);
+                    if (Files.isDirectory(fragmentDirectory)) {
+                        fragmentDirectories.add(fragmentDirectory);
+                    }
+                }
+                unusedFragments.put(archivePath, fragmentDirectories);
+            }
+        }
+        return unusedFragments;
+    }
+
+    /**
+     * Finds the dependent components which have nothing left to render once the given fragments are removed, i.e.
+     * which have no pages, no layouts, no configuration or bindings and only unused fragments. The root component is
+     * never unused.
+     *
+     * @param unusedFragments archive paths of the unused fragments, see {@link #find()}
+     * @return archive paths of the unused components (e.g. "components/foundation") mapped to their directories,
+     * sorted by archive path
+     * @throws IOException if an error occurred while reading the application
+     */
+    public SortedMap<String, List<Path>> findUnusedComponents(Collection<String> unusedFragments) throws IOException {
+        SortedMap<String, List<Path>> unusedComponents = new TreeMap<>();
+        for (Component component : application.getComponents().values()) {
+            if (component == application.getRootComponent() || !component.getPages().isEmpty() ||
+                    !component.listFiles(Component.LAYOUTS_DIR_NAME).isEmpty() ||
+                    component.resolve(Application.CONFIG_FILE_NAME) != null ||
+                    component.resolve(Application.BINDINGS_FILE_NAME) != null) {
+                continue;
+            }
+            boolean unused = true;
+            for (String fragmentName : component.getFragmentNames()) {
+                if (!unusedFragments.contains(component.getArchivePath(component.getFragmentPath(fragmentName)))) {
+                    unused = false;
+                    break;
+                }
+            }
+            if (unused) {
+                unusedComponents.put(component.getArchivePath("").replaceAll("/$", ""), component.getDirectories());
+            }
+        }
+        return unusedComponents;
+    }
+
+    /**
+     * @return references to fragments or layouts which cannot be found, found by the last {@link #find()}
+     */
+    public Set<String> getUnresolvedReferences() {
+        return unresolvedReferences;
+    }
+
+    /**
+     * @return references with a non-literal fragment, layout or zone name, found by the last {@link #find()}
+     */
+    public Set<String> getDynamicReferences() {
+        return dynamicReferences;
+    }
+
+    /**
+     * Finds the fragments which the JS files in the pages, fragments, layouts and public directories of the components
+     * and the themes render through {@code UUFClient.renderFragment}. Calls with a non-literal fragment name are recorded as dynamic references.
+     */
+    private Set<String> findRenderedFragments() throws IOException {
+        Set<String> renderedFragments = new TreeSet<>();
+        for (Component component : application.getComponents().values()) {
+            for (String directory : new String[]{Component.PAGES_DIR_NAME, Component.FRAGMENTS_DIR_NAME,
+                    Component.LAYOUTS_DIR_NAME, Component.PUBLIC_DIR_NAME}) {
+                for (Map.Entry<String, Path> file : component.listFiles(directory).entrySet()) {
+                    findRenderedFragments(component.getArchivePath(file.getKey()), file.getValue(),
+                                          renderedFragments);
+                }
+            }
+        }
+        for (Theme theme : application.getThemes().values()) {
+            for (Map.Entry<String, Path> file : theme.getPublicFiles().entrySet()) {
+                findRenderedFragments(theme.getArchivePath(file.getKey()), file.getValue(), renderedFragments);
+            }
+        }
+        return renderedFragments;
+    }
+
+    private void findRenderedFragments(String archivePath, Path file, Set<String> renderedFragments)
+            throws IOException {
+        if (!archivePath.endsWith(JS_EXTENSION)) {
+            return;
+        }
+        Matcher matcher = RENDER_FRAGMENT_PATTERN.matcher(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            String argument = matcher.group(1).trim();
+            Matcher literal = STRING_LITERAL_PATTERN.matcher(argument);
+            if (literal.matches()) {
+                renderedFragments.add(literal.group(2).trim());
+            } else {
+                dynamicReferences.add("renderFragment " + argument + " in " + archivePath);
+            }
+        }
+    }
+}
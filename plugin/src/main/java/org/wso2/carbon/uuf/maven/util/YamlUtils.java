@@ -0,0 +1,139 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility methods to read and write the YAML files of UUF artifacts.
+ */
+public class YamlUtils {
+
+    public static final String GENERATED_FILE_HEADER =
+            "# Auto-generated by UUF Maven Plugin. Do NOT modify manually.\n";
+
+    private YamlUtils() {
+    }
+
+    /**
+     * Loads the given YAML file. YAML files come from the extracted dependencies too, hence only standard YAML types
+     * are constructed, i.e. tags such as {@code !!java.io.File} are rejected.
+     *
+     * @param file YAML file to load
+     * @return loaded content or {@code null} if the file does not exist or is empty
+     * @throws IOException if the file cannot be read or is not a valid YAML document
+     */
+    public static Object load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new Yaml(new SafeConstructor(new LoaderOptions())).load(reader);
+        } catch (YAMLException e) {
+            throw new IOException("File '" + file + "' is not a valid YAML file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads the given YAML file which should contain a map.
+     *
+     * @param file YAML file to load
+     * @return loaded map; an empty map if the file does not exist or is empty
+     * @throws IOException if the file cannot be read or does not contain a map
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Object, Object> loadMap(Path file) throws IOException {
+        Object content = load(file);
+        if (content == null) {
+            return Collections.emptyMap();
+        }
+        if (!(content instanceof Map)) {
+            throw new IOException("File '" + file + "' should contain a map, but found a " +
+                                          content.getClass().getSimpleName() + ".");
+        }
+        return (Map<Object, Object>) content;
+    }
+
+    /**
+     * Returns the given YAML value as a list of strings. A single value is treated as a list with one element.
+     *
+     * @param value YAML value
+     * @return list of strings
+     */
+    public static List<String> toStringList(Object value) {
+        List<String> list = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item != null) {
+                    list.add(item.toString());
+                }
+            }
+        } else if (value != null) {
+            list.add(value.toString());
+        }
+        return list;
+    }
+
+    /**
+     * Writes the given content into the given file as a block-styled YAML document.
+     *
+     * @param file    file to write
+     * @param content content to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Object content) throws IOException {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        write(file, content, options);
+    }
+
+    /**
+     * Writes the given content into the given file as a compact, single line flow-styled YAML document.
+     *
+     * @param file    file to write
+     * @param content content to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeCompact(Path file, Object content) throws IOException {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.FLOW);
+        options.setWidth(Integer.MAX_VALUE);
+        write(file, content, options);
+    }
+
+    private static void write(Path file, Object content, DumperOptions options) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(GENERATED_FILE_HEADER);
+            new Yaml(options).dump(content, writer);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Losslessly optimizes GIF images by removing comment extensions and application extensions other than the
+ * animation looping extensions. Image data is copied as is.
+ */
+class GifOptimizer {
+
+    private static final int EXTENSION_INTRODUCER = 0x21;
+    private static final int IMAGE_SEPARATOR = 0x2C;
+    private static final int TRAILER = 0x3B;
+    private static final int COMMENT_LABEL = 0xFE;
+    private static final int APPLICATION_LABEL = 0xFF;
+    private static final String[] LOOPING_APPLICATIONS = {"NETSCAPE2.0", "ANIMEXTS1.0"};
+
+    private GifOptimizer() {
+    }
+
+    /**
+     * Optimizes the given GIF image.
+     *
+     * @param image GIF image
+     * @return optimized image, or the given image if it cannot be made smaller
+     * @throws IOException if the image is not a valid GIF
+     */
+    static byte[] optimize(byte[] image) throws IOException {
+        if (image.length < 13 || !new String(image, 0, 3, StandardCharsets.US_ASCII).equals("GIF")) {
+            throw new IOException("Not a GIF image.");
+        }
+        // header and logical screen descriptor
+        int position = 13;
+        int packed = image[10] & 0xFF;
+        if ((packed & 0x80) != 0) {
+            position += 3 * (1 << ((packed & 0x07) + 1));
+        }
+        checkBounds(image, position);
+        ByteArrayOutputStream optimized = new ByteArrayOutputStream(image.length);
+        optimized.write(image, 0, position);
+
+        while (position < image.length) {
+            int blockType = image[position] & 0xFF;
+            int start = position;
+            if (blockType == TRAILER) {
+                optimized.write(TRAILER);
+                break;
+            } else if (blockType == EXTENSION_INTRODUCER) {
+                checkBounds(image, position + 2);
+                int label = image[position + 1] & 0xFF;
+                position = skipSubBlocks(image, position + 2);
+                if (!isRemovable(label, image, start + 2)) {
+                    optimized.write(image, start, position - start);
+                }
+            } else if (blockType == IMAGE_SEPARATOR) {
+                checkBounds(image, position + 10);
+                int imagePacked = image[position + 9] & 0xFF;
+                position += 10;
+                if ((imagePacked & 0x80) != 0) {
+                    position += 3 * (1 << ((imagePacked & 0x07) + 1));
+                }
+                // LZW minimum code size followed by the image data sub-blocks
+                position = skipSubBlocks(image, position + 1);
+                optimized.write(image, start, position - start);
+            } else {
+                throw new IOException("Invalid GIF block at offset " + position + ".");
+            }
+        }
+        return (optimized.size() < image.length) ? optimized.toByteArray() : image;
+    }
+
+    private static boolean isRemovable(int label, byte[] image, int subBlocksOffset) {
+        if (label == COMMENT_LABEL) {
+            return true;
+        }
+        if (label == APPLICATION_LABEL) {
+            int blockSize = image[subBlocksOffset] & 0xFF;
+            if (blockSize < 11 || subBlocksOffset + 12 > image.length) {
+                return false;
+            }
+            String application = new String(image, subBlocksOffset + 1, 11, StandardCharsets.US_ASCII);
+            for (String loopingApplication : LOOPING_APPLICATIONS) {
+                if (loopingApplication.equals(application)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static int skipSubBlocks(byte[] image, int position) throws IOException {
+        while (true) {
+            checkBounds(image, position + 1);
+            int size = image[position] & 0xFF;
+            position += 1 + size;
+            if (size == 0) {
+                return position;
+            }
+        }
+    }
+
+    private static void checkBounds(byte[] image, int position) throws IOException {
+        if (position > image.length) {
+            throw new IOException("Truncated GIF image.");
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util.image;
+
+import org.wso2.carbon.uuf.maven.util.HashUtils;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Losslessly optimizes PNG, JPEG and GIF images in parallel. Optimization results are cached in a directory by the
+ * version of the optimizers and the SHA-256 hash of the original image, so that each image is optimized only once
+ * across builds. A cached empty file means that the image cannot be made smaller.
+ */
+public class ImageOptimizer {
+
+    /**
+     * Version of the optimizers, which prefixes the cache keys. Increment it whenever an optimizer changes its output,
+     * so that results cached by earlier versions are not reused.
+     */
+    static final String VERSION = "2";
+
+    private final Path cacheDirectory;
+    private final int threads;
+
+    /**
+     * @param cacheDirectory directory to cache optimized images in, or {@code null} to disable caching
+     * @param threads        number of threads to use
+     */
+    public ImageOptimizer(Path cacheDirectory, int threads) {
+        this.cacheDirectory = cacheDirectory;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Checks whether the given file is an image which can be optimized, by its extension.
+     *
+     * @param file file to check
+     * @return {@code true} if the file is a PNG, JPEG or GIF image
+     */
+    public static boolean isSupported(Path file) {
+        return getFormat(file) != null;
+    }
+
+    /**
+     * Optimizes the given images. An optimized image is written to its target only if it is smaller than the
+     * original; otherwise the target is left untouched.
+     *
+     * @param images source images mapped to the target files, which may be the same as the sources
+     * @return result of the optimization
+     * @throws IOException if an error occurred while reading or writing the images or the cache
+     */
+    public Result optimize(Map<Path, Path> images) throws IOException {
+        if (cacheDirectory != null) {
+            Files.createDirectories(cacheDirectory.resolve(VERSION));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        Map<Path, Future<ImageResult>> futures = new LinkedHashMap<>();
+        try {
+            for (final Map.Entry<Path, Path> image : images.entrySet()) {
+                futures.put(image.getKey(), executorService.submit(new Callable<ImageResult>() {
+                    @Override
+                    public ImageResult call() throws IOException {
+                        return optimize(image.getKey(), image.getValue());
+                    }
+                }));
+            }
+            Result result = new Result();
+            for (Map.Entry<Path, Future<ImageResult>> future : futures.entrySet()) {
+                try {
+                    result.add(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw (cause instanceof IOException) ? (IOException) cause :
+                            new IOException("Cannot optimize image '" + future.getKey() + "'.", cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while optimizing images.", e);
+                }
+            }
+            return result;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private ImageResult optimize(Path source, Path target) throws IOException {
+        byte[] original = Files.readAllBytes(source);
+        String hash = HashUtils.sha256(original);
+        Path cachedFile = (cacheDirectory == null) ? null : cacheDirectory.resolve(VERSION).resolve(hash);
+
+        byte[] optimized;
+        String failure = null;
+        boolean cacheHit = (cachedFile != null) && Files.isRegularFile(cachedFile);
+        if (cacheHit) {
+            byte[] cached = Files.readAllBytes(cachedFile);
+            optimized = (cached.length == 0) ? original : cached;
+        } else {
+            try {
+                optimized = optimize(getFormat(source), original);
+            } catch (IOException | RuntimeException e) {
+                // Unusual or corrupted images are packaged as they are.
+                optimized = original;
+                failure = (e.getMessage() != null) ? e.getMessage() : e.toString();
+            }
+            if (cachedFile != null && failure == null) {
+                writeAtomically(cachedFile, (optimized == original) ? new byte[0] : optimized);
+            }
+        }
+
+        if (optimized.length < original.length) {
+            Files.createDirectories(target.getParent());
+            writeAtomically(target, optimized);
+        }
+        return new ImageResult(original.length, optimized.length, cacheHit, failure);
+    }
+
+    private static byte[] optimize(String format, byte[] image) throws IOException {
+        switch (format) {
+            case "png":
+                return PngOptimizer.optimize(image);
+            case "jpeg":
+                return JpegOptimizer.optimize(image);
+            case "gif":
+                return GifOptimizer.optimize(image);
+            default:
+                return image;
+        }
+    }
+
+    private static String getFormat(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        if (fileName.endsWith(".png")) {
+            return "png";
+        } else if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
+            return "jpeg";
+        } else if (fileName.endsWith(".gif")) {
+            return "gif";
+        }
+        return null;
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, content);
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static class ImageResult {
+        private final long originalSize;
+        private final long optimizedSize;
+        private final boolean cacheHit;
+        private final String failure;
+
+        ImageResult(long originalSize, long optimizedSize, boolean cacheHit, String failure) {
+            this.originalSize = originalSize;
+            this.optimizedSize = optimizedSize;
+            this.cacheHit = cacheHit;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Result of optimizing a set of images.
+     */
+    public static class Result {
+        private final List<Path> optimizedImages = new ArrayList<>();
+        private final Map<Path, String> failedImages = new LinkedHashMap<>();
+        private int images;
+        private int cacheHits;
+        private long originalBytes;
+        private long savedBytes;
+
+        private void add(Path source, ImageResult imageResult) {
+            images++;
+            originalBytes += imageResult.originalSize;
+            if (imageResult.optimizedSize < imageResult.originalSize) {
+                optimizedImages.add(source);
+                savedBytes += imageResult.originalSize - imageResult.optimizedSize;
+            }
+            if (imageResult.cacheHit) {
+                cacheHits++;
+            }
+            if (imageResult.failure != null) {
+                failedImages.put(source, imageResult.failure);
+            }
+        }
+
+        /**
+         * @return number of processed images
+         */
+        public int getImages() {
+            return images;
+        }
+
+        /**
+         * @return source images whose optimized versions were written to their targets
+         */
+        public List<Path> getOptimizedImages() {
+            return Collections.unmodifiableList(optimizedImages);
+        }
+
+        /**
+         * @return source images which could not be optimized, mapped to the reasons
+         */
+        public Map<Path, String> getFailedImages() {
+            return Collections.unmodifiableMap(failedImages);
+        }
+
+        public int getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+
+        public long getSavedBytes() {
+            return savedBytes;
+        }
+    }
+}
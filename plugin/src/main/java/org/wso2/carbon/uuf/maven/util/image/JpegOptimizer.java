@@ -0,0 +1,98 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Losslessly optimizes JPEG images by removing comment, XMP and Photoshop metadata segments. Segments which affect
+ * how the image is displayed (JFIF, Exif orientation, ICC profiles and Adobe color transforms) are kept, and the
+ * entropy coded image data is copied as is.
+ */
+class JpegOptimizer {
+
+    private static final int MARKER_PREFIX = 0xFF;
+    private static final int START_OF_IMAGE = 0xD8;
+    private static final int START_OF_SCAN = 0xDA;
+    private static final int END_OF_IMAGE = 0xD9;
+    private static final int COMMENT = 0xFE;
+    private static final int APP1 = 0xE1;
+    private static final int APP13 = 0xED;
+    private static final String XMP_IDENTIFIER = "http://ns.adobe.com/xap/1.0/";
+
+    private JpegOptimizer() {
+    }
+
+    /**
+     * Optimizes the given JPEG image.
+     *
+     * @param image JPEG image
+     * @return optimized image, or the given image if it cannot be made smaller
+     * @throws IOException if the image is not a valid JPEG
+     */
+    static byte[] optimize(byte[] image) throws IOException {
+        if (image.length < 4 || (image[0] & 0xFF) != MARKER_PREFIX || (image[1] & 0xFF) != START_OF_IMAGE) {
+            throw new IOException("Not a JPEG image.");
+        }
+        ByteArrayOutputStream optimized = new ByteArrayOutputStream(image.length);
+        optimized.write(image, 0, 2);
+        int position = 2;
+        while (position < image.length) {
+            if ((image[position] & 0xFF) != MARKER_PREFIX) {
+                throw new IOException("Invalid JPEG marker at offset " + position + ".");
+            }
+            // Markers may be preceded by any number of fill bytes.
+            while (position + 1 < image.length && (image[position + 1] & 0xFF) == MARKER_PREFIX) {
+                position++;
+            }
+            if (position + 1 >= image.length) {
+                throw new IOException("Truncated JPEG image.");
+            }
+            int marker = image[position + 1] & 0xFF;
+            if (marker == START_OF_SCAN || marker == END_OF_IMAGE) {
+                // The rest is the entropy coded image data (possibly with further scans), copied as is.
+                optimized.write(image, position, image.length - position);
+                break;
+            }
+            if (position + 3 >= image.length) {
+                throw new IOException("Truncated JPEG image.");
+            }
+            int segmentLength = 2 + (((image[position + 2] & 0xFF) << 8) | (image[position + 3] & 0xFF));
+            if (segmentLength < 4 || position + segmentLength > image.length) {
+                throw new IOException("Invalid JPEG segment length at offset " + position + ".");
+            }
+            if (!isRemovable(marker, image, position + 4, segmentLength - 4)) {
+                optimized.write(image, position, segmentLength);
+            }
+            position += segmentLength;
+        }
+        return (optimized.size() < image.length) ? optimized.toByteArray() : image;
+    }
+
+    private static boolean isRemovable(int marker, byte[] image, int dataOffset, int dataLength) {
+        if (marker == COMMENT || marker == APP13) {
+            return true;
+        }
+        if (marker == APP1 && dataLength >= XMP_IDENTIFIER.length()) {
+            String identifier = new String(image, dataOffset, XMP_IDENTIFIER.length(), StandardCharsets.US_ASCII);
+            return XMP_IDENTIFIER.equals(identifier);
+        }
+        return false;
+    }
+}
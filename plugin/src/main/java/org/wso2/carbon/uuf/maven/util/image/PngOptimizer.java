@@ -0,0 +1,146 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Losslessly optimizes PNG images by removing textual and time metadata chunks and by recompressing the image data
+ * with the best compression level. The image data is not re-filtered, hence the decoded pixels stay identical.
+ */
+class PngOptimizer {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final String IMAGE_DATA_CHUNK = "IDAT";
+    private static final Set<String> REMOVABLE_CHUNKS = new HashSet<>(Arrays.asList("tEXt", "zTXt", "iTXt", "tIME"));
+    private static final int[] DEFLATE_STRATEGIES = {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED};
+
+    private PngOptimizer() {
+    }
+
+    /**
+     * Optimizes the given PNG image.
+     *
+     * @param image PNG image
+     * @return optimized image, or the given image if it cannot be made smaller or has a chunk which exceeds the image
+     * @throws IOException if the image is not a valid PNG
+     */
+    static byte[] optimize(byte[] image) throws IOException {
+        if (image.length < SIGNATURE.length || !Arrays.equals(SIGNATURE, Arrays.copyOf(image, SIGNATURE.length))) {
+            throw new IOException("Not a PNG image.");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(image);
+        buffer.position(SIGNATURE.length);
+        ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+        ByteArrayOutputStream before = new ByteArrayOutputStream();
+        ByteArrayOutputStream after = new ByteArrayOutputStream();
+        while (buffer.remaining() >= 12) {
+            int length = buffer.getInt();
+            byte[] typeBytes = new byte[4];
+            buffer.get(typeBytes);
+            // Compared without adding to the length, which may be as large as Integer.MAX_VALUE.
+            if (length < 0 || length > buffer.remaining() - 4) {
+                return image;
+            }
+            byte[] data = new byte[length];
+            buffer.get(data);
+            buffer.getInt(); // CRC
+            String type = new String(typeBytes, StandardCharsets.US_ASCII);
+            if (IMAGE_DATA_CHUNK.equals(type)) {
+                imageData.write(data);
+            } else if (!REMOVABLE_CHUNKS.contains(type)) {
+                writeChunk((imageData.size() == 0) ? before : after, typeBytes, data);
+            }
+        }
+        if (imageData.size() == 0) {
+            throw new IOException("PNG image does not contain image data.");
+        }
+
+        byte[] compressed = recompress(imageData.toByteArray());
+        ByteArrayOutputStream optimized = new ByteArrayOutputStream(image.length);
+        optimized.write(SIGNATURE);
+        before.writeTo(optimized);
+        writeChunk(optimized, IMAGE_DATA_CHUNK.getBytes(StandardCharsets.US_ASCII), compressed);
+        after.writeTo(optimized);
+        return (optimized.size() < image.length) ? optimized.toByteArray() : image;
+    }
+
+    private static byte[] recompress(byte[] compressedData) throws IOException {
+        byte[] rawData = inflate(compressedData);
+        byte[] best = compressedData;
+        for (int strategy : DEFLATE_STRATEGIES) {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                deflater.setStrategy(strategy);
+                deflater.setInput(rawData);
+                deflater.finish();
+                ByteArrayOutputStream output = new ByteArrayOutputStream(compressedData.length);
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    output.write(chunk, 0, deflater.deflate(chunk));
+                }
+                if (output.size() < best.length) {
+                    best = output.toByteArray();
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        return best;
+    }
+
+    private static byte[] inflate(byte[] compressedData) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressedData);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressedData.length * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated PNG image data.");
+                }
+                output.write(chunk, 0, inflated);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted PNG image data.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeChunk(ByteArrayOutputStream output, byte[] type, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(data);
+        output.write(ByteBuffer.allocate(4).putInt(data.length).array(), 0, 4);
+        output.write(type, 0, type.length);
+        output.write(data, 0, data.length);
+        output.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array(), 0, 4);
+    }
+}
@@ -18,8 +18,11 @@ package org.wso2.carbon.uuf.maven.uuf;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.assembly.InvalidAssemblerConfigurationException;
@@ -34,24 +37,29 @@ import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
+import org.wso2.carbon.uuf.maven.util.image.ImageOptimizer;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
@@ -70,7 +78,12 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
     protected static final String THEME_ASSEMBLY_FORMAT = "tar";
     private static final String OSGI_IMPORT_PACKAGES = "Import-Package";
     private static final String DEPLOYMENT_FOLDER_NAME = "uufapps";
+    private static final String FEATURE_RESOURCES_DIRECTORY_NAME = "maven-shared-resources";
     private static final String ADVICE_FILENAME = "p2.inf";
+    private static final String FEATURE_PROPERTIES_FILENAME = "feature.properties";
+    private static final String WORKSPACES_DIRECTORY_NAME = "uuf-work";
+    private static final String PUBLIC_DIRECTORY_NAME = "public";
+    static final String UUF_TEMP_DIRECTORY_NAME = "uuf-temp";
 
     /**
      * Maven Project.
@@ -78,6 +91,12 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    /**
+     * The current mojo execution.
+     */
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
     /**
      * The artifactId of the project.
      */
@@ -120,6 +139,30 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
     @Parameter
     private Map instructions = new LinkedHashMap();
 
+    /**
+     * Whether to losslessly optimize the PNG, JPEG and GIF images in the public directories when packaging.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean optimizeImages;
+
+    /**
+     * Directory to cache the optimized images in, so that each image is optimized only once across builds.
+     */
+    @Parameter(defaultValue = "${user.home}/.uuf/image-cache")
+    private File imageCacheDirectory;
+
+    /**
+     * Number of threads of an execution to optimize images and extract indexed themes with, or 0 to divide the
+     * available processors among the modules which are built in parallel (see the {@code -T} option of Maven).
+     */
+    @Parameter(property = "uuf.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Project relative paths of the optimized images in the optimized images directory.
+     */
+    private final Set<String> optimizedImages = new TreeSet<>();
+
     protected abstract Assembly getAssembly() throws MojoFailureException;
 
     /**
@@ -132,6 +175,7 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
         // Hence needed to reimplement the below method.
         setAppendAssemblyId(false);
         createOsgiImportsConfig();
+        optimizeProjectImages();
         Assembly assembly = getAssembly();
         List<String> formats = assembly.getFormats();
         if (formats.isEmpty()) {
@@ -146,6 +190,7 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
             String classifier = getClassifier();
             String type = project.getArtifact().getType();
             if (destFile.isFile()) {
+                postProcessArchive(destFile);
                 if (isAssemblyIdAppended()) {
                     projectHelper.attachArtifact(project, currentFormat, assembly.getId(), destFile);
                 } else if (classifier != null) {
@@ -182,6 +227,16 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
         }
     }
 
+    /**
+     * Invoked after the assembly archive is created and before it is attached to the project.
+     *
+     * @param archive created archive file
+     * @throws MojoExecutionException if the archive cannot be processed
+     */
+    protected void postProcessArchive(File archive) throws MojoExecutionException {
+        // nothing to do by default
+    }
+
     protected FileSet createFileSet(String sourceDirectory, String destDirectory) {
         FileSet fileSet = new FileSet();
         fileSet.setDirectory(sourceDirectory);
@@ -206,6 +261,175 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
         return Arrays.asList(fileSets);
     }
 
+    /**
+     * @return whether images are optimized when packaging
+     */
+    protected boolean isOptimizeImages() {
+        return optimizeImages;
+    }
+
+    /**
+     * Replaces the optimized images in the given project file set with their optimized versions.
+     *
+     * @param fileSets       file sets of the assembly
+     * @param projectFileSet file set of the project base directory
+     */
+    protected void addOptimizedImages(List<FileSet> fileSets, FileSet projectFileSet) {
+        if (optimizedImages.isEmpty()) {
+            return;
+        }
+        projectFileSet.getExcludes().addAll(optimizedImages);
+        FileSet fileSet = new FileSet();
+        fileSet.setDirectory(getOptimizedImagesDirectory().toString());
+        fileSet.setOutputDirectory(projectFileSet.getOutputDirectory());
+        fileSet.setIncludes(new ArrayList<>(optimizedImages));
+        fileSets.add(fileSet);
+    }
+
+    /**
+     * Losslessly optimizes the images in the public directories of this project, if enabled. Project files are not
+     * modified; optimized images are written into the optimized images directory and replace the originals when
+     * packaging.
+     *
+     * @throws MojoExecutionException if an error occurred while optimizing the images
+     */
+    protected void optimizeProjectImages() throws MojoExecutionException {
+        if (!optimizeImages) {
+            return;
+        }
+        Path baseDirectory = getBasedir().toPath();
+        Path optimizedImagesDirectory = getOptimizedImagesDirectory();
+        Map<Path, Path> images = new LinkedHashMap<>();
+        try {
+            FileUtils.deleteDirectory(optimizedImagesDirectory.toFile());
+            for (Path image : findPublicImages(baseDirectory)) {
+                images.put(image, optimizedImagesDirectory.resolve(baseDirectory.relativize(image)));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot find images in '" + baseDirectory + "'.", e);
+        }
+        for (Path image : runImageOptimizer(images, baseDirectory).getOptimizedImages()) {
+            optimizedImages.add(baseDirectory.relativize(image).toString().replace(File.separatorChar, '/'));
+        }
+    }
+
+    /**
+     * Losslessly optimizes the images in the public directories of the given directory in place, if enabled.
+     *
+     * @param directory directory which is packaged, e.g. extracted dependencies
+     * @throws MojoExecutionException if an error occurred while optimizing the images
+     */
+    protected void optimizeImagesInPlace(Path directory) throws MojoExecutionException {
+        if (!optimizeImages || !Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> images;
+        try {
+            images = findPublicImages(directory);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot find images in '" + directory + "'.", e);
+        }
+        optimizeImagesInPlace(images, directory);
+    }
+
+    /**
+     * Losslessly optimizes the given images in place, if enabled.
+     *
+     * @param images    images to optimize
+     * @param directory directory which contains the images
+     * @throws MojoExecutionException if an error occurred while optimizing the images
+     */
+    protected void optimizeImagesInPlace(List<Path> images, Path directory) throws MojoExecutionException {
+        if (!optimizeImages) {
+            return;
+        }
+        Map<Path, Path> imageFiles = new LinkedHashMap<>();
+        for (Path image : images) {
+            imageFiles.put(image, image);
+        }
+        runImageOptimizer(imageFiles, directory);
+    }
+
+    private ImageOptimizer.Result runImageOptimizer(Map<Path, Path> images, Path directory)
+            throws MojoExecutionException {
+        Path cacheDirectory = (imageCacheDirectory == null) ? null : imageCacheDirectory.toPath();
+        ImageOptimizer.Result result;
+        try {
+            result = new ImageOptimizer(cacheDirectory, getThreadCount()).optimize(images);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot optimize images in '" + directory + "'.", e);
+        }
+        for (Map.Entry<Path, String> failedImage : result.getFailedImages().entrySet()) {
+            getLog().warn("Cannot optimize image '" + failedImage.getKey() + "': " + failedImage.getValue());
+        }
+        getLog().info("Optimized " + result.getOptimizedImages().size() + " of " + result.getImages() +
+                              " image(s) in '" + directory + "' (" + result.getCacheHits() + " cached), saving " +
+                              result.getSavedBytes() + " of " + result.getOriginalBytes() + " bytes.");
+        return result;
+    }
+
+    /**
+     * Finds the supported images in the public directories under the given directory, skipping the build directory
+     * and the files which are excluded from the feature.
+     */
+    private List<Path> findPublicImages(Path directory) throws IOException {
+        final Path buildDirectory = getBuildDirectory();
+        final FileFilter featureFileFilter = getFeatureFileFilter();
+        final List<Path> images = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                return dir.equals(buildDirectory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (ImageOptimizer.isSupported(file) && isInPublicDirectory(file) &&
+                        (featureFileFilter == null || featureFileFilter.accept(file.toFile()))) {
+                    images.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return images;
+    }
+
+    private static boolean isInPublicDirectory(Path file) {
+        for (Path parent = file.getParent(); parent != null && parent.getFileName() != null;
+             parent = parent.getParent()) {
+            if (PUBLIC_DIRECTORY_NAME.equals(parent.getFileName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of threads this execution may use. Unless configured, the available processors are divided
+     * among the modules which are built in parallel, so that a parallel build does not start a pool of threads per
+     * processor in each module.
+     *
+     * @return number of threads, at least 1
+     */
+    protected int getThreadCount() {
+        if (threads > 0) {
+            return threads;
+        }
+        int processors = Runtime.getRuntime().availableProcessors();
+        MavenSession session = getMavenSession();
+        MavenExecutionRequest request = (session == null) ? null : session.getRequest();
+        int parallelModules = 1;
+        if ((request != null) && request.isThreadConfigurationPresent() && (request.getThreadCount() != null)) {
+            try {
+                float threadCount = Float.parseFloat(request.getThreadCount().replace("C", ""));
+                parallelModules = (int) (request.isPerCoreThreadCount() ? threadCount * processors : threadCount);
+            } catch (NumberFormatException e) {
+                getLog().debug("Cannot parse thread count '" + request.getThreadCount() + "'.", e);
+            }
+        }
+        return Math.max(1, processors / Math.max(1, parallelModules));
+    }
+
     private void createOsgiImportsConfig() throws MojoExecutionException {
         String[] osgiImports = getOsgiImports();
         if (osgiImports == null) {
@@ -243,50 +467,83 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
     }
 
     protected void createFeature() throws MojoExecutionException {
-        // Add temp p2.inf into resources
-        File tempP2File = createTempP2File();
-        File tempFolder = tempP2File.getParentFile();
+        // Each execution writes its temporary files into its own workspace, hence parallel builds never share them.
+        Path workspaceDirectory = createWorkspaceDirectory();
+
+        // Add p2.inf into resources
+        File p2File = createP2File(workspaceDirectory);
         Resource resource = new Resource();
-        resource.setDirectory(tempFolder.getAbsolutePath());
+        resource.setDirectory(p2File.getParentFile().getAbsolutePath());
         project.addResource(resource);
 
-        // Copy sources into maven-shared-resources
         try {
-            Path output = Paths.get(outputDirectoryPath);
-            FileUtils.copyDirectory(getBasedir(),
-                                    output.resolve("maven-shared-resources/uufapps/" + getSimpleArtifactId()).toFile()
+            // Copy sources into maven-shared-resources
+            try {
+                Path featureDirectory = getFeatureDirectory(getBuildDirectory(), artifactId);
+                FileUtils.deleteDirectory(featureDirectory.toFile());
+                FileUtils.copyDirectory(getBasedir(), featureDirectory.toFile(),
+                                        excludeWorkspaces(getFeatureFileFilter()));
+                Path optimizedImagesDirectory = getOptimizedImagesDirectory();
+                for (String optimizedImage : optimizedImages) {
+                    Files.copy(optimizedImagesDirectory.resolve(optimizedImage),
+                               featureDirectory.resolve(optimizedImage), StandardCopyOption.REPLACE_EXISTING);
+                }
+                addFeatureFiles(featureDirectory);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot copy project files into maven-shared resources.", e);
+            }
+
+            // Execute carbon-feature-plugin
+            File propertyFile = createFeaturesPropertyFile(workspaceDirectory);
+            executeMojo(
+                    plugin(
+                            groupId("org.wso2.carbon.maven"),
+                            artifactId("carbon-feature-plugin"),
+                            version(carbonFeaturePluginVersion)
+                    ),
+                    goal("generate"),
+                    configuration(
+                            element(name("propertyFile"), propertyFile.getAbsolutePath()),
+                            element(name("adviceFileContents"),
+                                    element(name("advice"),
+                                            element(name("name"), "org.wso2.carbon.p2.category.type"),
+                                            element(name("value"), "server")
+                                    ),
+                                    element(name("advice"),
+                                            element(name("name"), "org.eclipse.equinox.p2.type.group"),
+                                            element(name("value"), "false")
+                                    )
+                            )
+                    ),
+                    executionEnvironment(getProject(), getMavenSession(), pluginManager)
             );
-        } catch (IOException e) {
-            throw new MojoExecutionException("Cannot copy project files into maven-shared resources.");
+        } finally {
+            project.getResources().remove(resource);
+            deleteWorkspaceDirectory(workspaceDirectory);
         }
+    }
 
-        // Execute carbon-feature-plugin
-        File tempPropertyFile = createFeaturesPropertyFile();
-        executeMojo(
-                plugin(
-                        groupId("org.wso2.carbon.maven"),
-                        artifactId("carbon-feature-plugin"),
-                        version(carbonFeaturePluginVersion)
-                ),
-                goal("generate"),
-                configuration(
-                        element(name("propertyFile"), tempPropertyFile.getAbsolutePath()),
-                        element(name("adviceFileContents"),
-                                element(name("advice"),
-                                        element(name("name"), "org.wso2.carbon.p2.category.type"),
-                                        element(name("value"), "server")
-                                ),
-                                element(name("advice"),
-                                        element(name("name"), "org.eclipse.equinox.p2.type.group"),
-                                        element(name("value"), "false")
-                                )
-                        )
-                ),
-                executionEnvironment(getProject(), getMavenSession(), pluginManager)
-        );
+    /**
+     * Returns the filter for the project files which are copied into the feature.
+     *
+     * @return file filter or {@code null} to copy all files
+     */
+    protected FileFilter getFeatureFileFilter() {
+        return null;
+    }
+
+    /**
+     * Adds the files which are not project files, e.g. files generated when packaging, into the feature. Invoked
+     * after the project files are copied into the feature directory.
+     *
+     * @param featureDirectory directory which is deployed by the feature
+     * @throws IOException if the files cannot be copied
+     */
+    protected void addFeatureFiles(Path featureDirectory) throws IOException {
+        // nothing to add by default
     }
 
-    private File createFeaturesPropertyFile() throws MojoExecutionException {
+    private File createFeaturesPropertyFile(Path workspaceDirectory) throws MojoExecutionException {
         // Read feature.properties
         String content = "";
         try (InputStream featureProperties = getClass().getClassLoader().getResourceAsStream("feature.properties")) {
@@ -298,51 +555,72 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
             throw new MojoExecutionException("Cannot read 'feature.properties' in resources folder.");
         }
 
-        // Create temp feature.properties
-        String tempPrefix = "feature";
-        String tempSuffix = ".properties";
-        File tempPropertyFile;
-        OutputStream tempPropertyOut = null;
+        // Create feature.properties in the workspace
+        Path propertyFile = workspaceDirectory.resolve(FEATURE_PROPERTIES_FILENAME);
         try {
-            tempPropertyFile = File.createTempFile(tempPrefix, tempSuffix);
-            tempPropertyOut = new FileOutputStream(tempPropertyFile);
-            IOUtils.write(content, tempPropertyOut, StandardCharsets.UTF_8.name());
+            Files.write(propertyFile, content.getBytes(StandardCharsets.UTF_8));
         } catch (IOException e) {
-            throw new MojoExecutionException("Cannot create temp file '' in " + tempPrefix + tempSuffix);
-        } finally {
-            IOUtils.closeQuietly(tempPropertyOut);
+            throw new MojoExecutionException("Cannot create file '" + propertyFile + "'.", e);
         }
-        return tempPropertyFile;
+        return propertyFile.toFile();
     }
 
-    private File createTempP2File() throws MojoExecutionException {
-        File tempAdviceFile;
-        OutputStream outputStream = null;
-        OutputStreamWriter writer = null;
+    private File createP2File(Path workspaceDirectory) throws MojoExecutionException {
+        // p2.inf is added as a resource, hence it is created in a directory of its own.
+        Path adviceFile = workspaceDirectory.resolve("p2").resolve(ADVICE_FILENAME);
         try {
-            File tempFolder = File.createTempFile("temp", Long.toString(System.nanoTime()));
-            // Delete already created regular temp file and create a new temp folder with the same name.
-            // Refer SO answer: http://stackoverflow.com/a/13068936/1560536
-            if (!(tempFolder.delete() && tempFolder.mkdir())) {
-                throw new MojoExecutionException(
-                        "Cannot not create temp directory in path:" + tempFolder.getAbsolutePath());
-            }
-            tempAdviceFile = new File(tempFolder, ADVICE_FILENAME);
-            if (!tempAdviceFile.createNewFile()) {
-                throw new MojoExecutionException(
-                        "Cannot create temp file '" + ADVICE_FILENAME + "' in path:" + tempFolder.getAbsolutePath()
-                );
+            Files.createDirectories(adviceFile.getParent());
+            Files.write(adviceFile, createP2Instructions().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot create file '" + adviceFile + "'.", e);
+        }
+        return adviceFile.toFile();
+    }
+
+    /**
+     * Creates an empty workspace directory for the temporary files of this execution. Workspaces are in the build
+     * directory of the project and named by the execution ID, hence unique to each execution.
+     *
+     * @return created workspace directory
+     * @throws MojoExecutionException if the workspace directory cannot be created
+     */
+    private Path createWorkspaceDirectory() throws MojoExecutionException {
+        String executionId = (mojoExecution == null) ? "default" : mojoExecution.getExecutionId();
+        Path workspaceDirectory = getBuildDirectory().resolve(WORKSPACES_DIRECTORY_NAME)
+                .resolve(executionId.replaceAll("[^A-Za-z0-9._-]", "_"));
+        try {
+            FileUtils.deleteDirectory(workspaceDirectory.toFile());
+            Files.createDirectories(workspaceDirectory);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot create workspace directory '" + workspaceDirectory + "'.", e);
+        }
+        return workspaceDirectory;
+    }
+
+    /**
+     * Wraps the given filter of the project files so that the workspaces, which are in the build directory of the
+     * project, are not copied into the feature.
+     *
+     * @param fileFilter filter to wrap or {@code null} to accept all other files
+     * @return file filter
+     */
+    private FileFilter excludeWorkspaces(final FileFilter fileFilter) {
+        final Path workspacesDirectory = getBuildDirectory().resolve(WORKSPACES_DIRECTORY_NAME).toAbsolutePath();
+        return new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return !file.toPath().toAbsolutePath().startsWith(workspacesDirectory) &&
+                        (fileFilter == null || fileFilter.accept(file));
             }
-            outputStream = new FileOutputStream(tempAdviceFile);
-            writer = new OutputStreamWriter(outputStream, "UTF-8");
-            IOUtils.write(createP2Instructions(), writer);
+        };
+    }
+
+    private void deleteWorkspaceDirectory(Path workspaceDirectory) {
+        try {
+            FileUtils.deleteDirectory(workspaceDirectory.toFile());
         } catch (IOException e) {
-            throw new MojoExecutionException("Cannot create temp file '" + ADVICE_FILENAME + "' in the temp directory");
-        } finally {
-            IOUtils.closeQuietly(writer);
-            IOUtils.closeQuietly(outputStream);
+            getLog().warn("Cannot delete workspace directory '" + workspaceDirectory + "'.", e);
         }
-        return tempAdviceFile;
     }
 
     private String createP2Instructions() {
@@ -378,6 +656,10 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
     }
 
     protected String getSimpleArtifactId() {
+        return getSimpleArtifactId(artifactId);
+    }
+
+    private static String getSimpleArtifactId(String artifactId) {
         int lastIndex = artifactId.lastIndexOf(".");
         if (lastIndex > -1) {
             return artifactId.substring(lastIndex + 1);
@@ -385,8 +667,28 @@ public abstract class AbstractUUFMojo extends AbstractAssemblyMojo {
         return artifactId;
     }
 
+    /**
+     * Returns the directory whose content the feature of the given artifact deploys.
+     *
+     * @param buildDirectory build directory of the project
+     * @param artifactId     artifact ID of the project
+     * @return feature directory
+     */
+    static Path getFeatureDirectory(Path buildDirectory, String artifactId) {
+        return buildDirectory.resolve(FEATURE_RESOURCES_DIRECTORY_NAME).resolve(DEPLOYMENT_FOLDER_NAME)
+                .resolve(getSimpleArtifactId(artifactId));
+    }
+
+    protected Path getBuildDirectory() {
+        return Paths.get(outputDirectoryPath);
+    }
+
+    protected Path getOptimizedImagesDirectory() {
+        return Paths.get(outputDirectoryPath + "/uuf-images");
+    }
+
     protected Path getUUFTempDirectory() {
-        return Paths.get(outputDirectoryPath + "/uuf-temp");
+        return Paths.get(outputDirectoryPath).resolve(UUF_TEMP_DIRECTORY_NAME);
     }
 
     protected Path getUUFOsgiConfigOutDirectory() {
@@ -0,0 +1,344 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.uuf;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.util.ApplicationAnalyzer;
+import org.wso2.carbon.uuf.maven.util.AssetsBundler;
+import org.wso2.carbon.uuf.maven.util.DuplicateAssetsFinder;
+import org.wso2.carbon.uuf.maven.util.PageAssetsResolver;
+import org.wso2.carbon.uuf.maven.util.YamlUtils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Analyze the size of a UUF application and check it against the configured performance budgets. The application is
+ * analyzed as packaged into its feature by the {@code create-application} goal, hence this goal should run after it.
+ */
+@Mojo(name = "analyze", inheritByDefault = false, threadSafe = true, defaultPhase = LifecyclePhase.VERIFY)
+public class AnalyzeUUFMojo extends AbstractMojo {
+
+    private static final String REPORT_FILE_NAME = "uuf-analysis.yaml";
+
+    /**
+     * The artifactId of the project.
+     */
+    @Parameter(defaultValue = "${project.artifactId}", required = true, readonly = true)
+    private String artifactId;
+
+    /**
+     * The build output directory, which contains the application feature and the extracted dependencies.
+     */
+    @Parameter(defaultValue = "${project.build.directory}", required = true, readonly = true)
+    private String outputDirectoryPath;
+
+    /**
+     * Number of the largest assets to report.
+     */
+    @Parameter(defaultValue = "10")
+    private int largestAssetsCount;
+
+    /**
+     * Maximum estimated size of the application archive in bytes, or 0 for no limit.
+     */
+    @Parameter(defaultValue = "0")
+    private long maxTotalSize;
+
+    /**
+     * Maximum estimated compressed transfer weight of the assets of a page in bytes, or 0 for no limit.
+     */
+    @Parameter(defaultValue = "0")
+    private long maxPageWeight;
+
+    /**
+     * Maximum size of a public asset in bytes, or 0 for no limit.
+     */
+    @Parameter(defaultValue = "0")
+    private long maxAssetSize;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Path buildDirectory = Paths.get(outputDirectoryPath);
+        Path featureDirectory = AbstractUUFMojo.getFeatureDirectory(buildDirectory, artifactId);
+        if (!Files.isDirectory(featureDirectory)) {
+            throw new MojoExecutionException("Cannot find the application feature in '" + featureDirectory +
+                                                     "'. Run the 'create-application' goal before analyzing.");
+        }
+        Path report = buildDirectory.resolve(REPORT_FILE_NAME);
+        List<String> budgetViolations = new ArrayList<>();
+        try {
+            // Dependencies are packaged into the feature as they are extracted and processed.
+            Application application = Application.read(featureDirectory,
+                                                       buildDirectory.resolve(AbstractUUFMojo.UUF_TEMP_DIRECTORY_NAME));
+            Map<String, Path> sharedAssets = readSharedAssets(
+                    featureDirectory.resolve(ApplicationUUFMojo.SHARED_ASSETS_NAME));
+            ApplicationAnalyzer analyzer = new ApplicationAnalyzer(application, new RootFilesFilter(featureDirectory),
+                                                                   sharedAssets);
+            Map<String, Object> content = new LinkedHashMap<>();
+
+            // Sizes of the components, themes and the whole archive
+            Map<String, Object> artifacts = new LinkedHashMap<>();
+            SortedMap<String, Path> archiveFiles = getApplicationFiles(featureDirectory);
+            for (Map.Entry<String, SortedMap<String, Path>> entry : analyzer.getFiles().entrySet()) {
+                artifacts.put(entry.getKey(), createSizeEntry(entry.getValue(), analyzer));
+                archiveFiles.putAll(entry.getValue());
+            }
+            long totalSize = 0;
+            long totalCompressedSize = 0;
+            for (Path file : archiveFiles.values()) {
+                totalSize += Files.size(file);
+                totalCompressedSize += analyzer.getCompressedSize(file);
+            }
+            content.put("totalSize", totalSize);
+            content.put("estimatedArchiveSize", totalCompressedSize);
+            content.put("artifacts", artifacts);
+            getLog().info("Application '" + artifactId + "' contains " + artifacts.size() + " components and " +
+                                  "themes of " + totalSize + " bytes (estimated archive size " +
+                                  totalCompressedSize + " bytes).");
+            if (maxTotalSize > 0 && totalCompressedSize > maxTotalSize) {
+                budgetViolations.add("Estimated archive size " + totalCompressedSize + " bytes exceeds the " +
+                                             "budget of " + maxTotalSize + " bytes.");
+            }
+
+            // Largest assets
+            SortedMap<String, Path> assets = analyzer.getAssets();
+            final Map<String, Long> assetSizes = new TreeMap<>();
+            for (Map.Entry<String, Path> asset : assets.entrySet()) {
+                long size = Files.size(asset.getValue());
+                assetSizes.put(asset.getKey(), size);
+                if (maxAssetSize > 0 && size > maxAssetSize) {
+                    budgetViolations.add("Asset '" + asset.getKey() + "' of " + size + " bytes exceeds the budget " +
+                                                 "of " + maxAssetSize + " bytes.");
+                }
+            }
+            List<String> largestAssets = new ArrayList<>(assetSizes.keySet());
+            Collections.sort(largestAssets, new Comparator<String>() {
+                @Override
+                public int compare(String asset1, String asset2) {
+                    return Long.compare(assetSizes.get(asset2), assetSizes.get(asset1));
+                }
+            });
+            Map<String, Object> largestAssetSizes = new LinkedHashMap<>();
+            for (String asset : largestAssets.subList(0, Math.min(Math.max(largestAssetsCount, 0),
+                                                                  largestAssets.size()))) {
+                largestAssetSizes.put(asset, assetSizes.get(asset));
+            }
+            content.put("largestAssets", largestAssetSizes);
+
+            // Duplicate assets
+            Map<String, Object> duplicates = new LinkedHashMap<>();
+            long duplicateBytes = 0;
+            for (Map.Entry<String, SortedMap<String, Path>> entry : new DuplicateAssetsFinder(application).find()
+                    .entrySet()) {
+                SortedMap<String, Path> identicalFiles = entry.getValue();
+                duplicateBytes += Files.size(identicalFiles.get(identicalFiles.firstKey())) *
+                        (identicalFiles.size() - 1);
+                duplicates.put(entry.getKey(), new ArrayList<>(identicalFiles.keySet()));
+            }
+            content.put("duplicateBytes", duplicateBytes);
+            content.put("duplicates", duplicates);
+            if (!duplicates.isEmpty()) {
+                getLog().info("Found " + duplicates.size() + " asset(s) bundled more than once, wasting " +
+                                      duplicateBytes + " bytes.");
+            }
+
+            // Page weights
+            PageAssetsResolver resolver = new PageAssetsResolver(application);
+            Map<String, Long> pageWeights = analyzer.getPageWeights(resolver.resolve(), assets,
+                                                                    readPageBundles(featureDirectory, assets));
+            for (String reference : resolver.getUnresolvedReferences()) {
+                getLog().warn("Cannot resolve '" + reference + "' when analyzing the pages.");
+            }
+            for (Map.Entry<String, Long> pageWeight : pageWeights.entrySet()) {
+                if (maxPageWeight > 0 && pageWeight.getValue() > maxPageWeight) {
+                    budgetViolations.add("Page '" + pageWeight.getKey() + "' weighs " + pageWeight.getValue() +
+                                                 " bytes, which exceeds the budget of " + maxPageWeight + " bytes.");
+                }
+            }
+            content.put("pageWeights", pageWeights);
+
+            content.put("budgetViolations", budgetViolations);
+            YamlUtils.write(report, content);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot analyze application '" + artifactId + "'.", e);
+        }
+
+        getLog().info("See '" + report + "' for the analysis of application '" + artifactId + "'.");
+        if (!budgetViolations.isEmpty()) {
+            for (String budgetViolation : budgetViolations) {
+                getLog().error(budgetViolation);
+            }
+            throw new MojoFailureException("Application '" + artifactId + "' exceeds " + budgetViolations.size() +
+                                                   " performance budget(s). See '" + report + "' for details.");
+        }
+    }
+
+    /**
+     * Returns the files of the application feature which do not belong to any component or theme, e.g. the dependency
+     * tree and the shared assets.
+     */
+    private static SortedMap<String, Path> getApplicationFiles(Path featureDirectory) throws IOException {
+        SortedMap<String, Path> files = new TreeMap<>();
+        for (String archivePath : new String[]{
+                ApplicationUUFMojo.COMPONENTS_NAME + "/" + ApplicationUUFMojo.DEPENDENCY_TREE_FILE_NAME,
+                ApplicationUUFMojo.PAGE_ASSETS_FILE_NAME, ApplicationUUFMojo.CONFIG_BUNDLE_FILE_NAME}) {
+            Path file = featureDirectory.resolve(archivePath);
+            if (Files.isRegularFile(file)) {
+                files.put(archivePath, file);
+            }
+        }
+        listFiles(featureDirectory, ApplicationUUFMojo.SHARED_ASSETS_NAME, files);
+        listFiles(featureDirectory, AssetsBundler.BUNDLES_DIR_NAME, files);
+        return files;
+    }
+
+    private static void listFiles(final Path featureDirectory, String directoryName, final Map<String, Path> files)
+            throws IOException {
+        Path directory = featureDirectory.resolve(directoryName);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                files.put(featureDirectory.relativize(file).toString().replace('\\', '/'), file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Reads the index of the shared assets store which is created when deduplicating assets.
+     *
+     * @return archive paths of the deduplicated assets mapped to their shared files
+     */
+    private static Map<String, Path> readSharedAssets(Path sharedAssetsDirectory) throws IOException {
+        Map<String, Path> sharedAssets = new TreeMap<>();
+        for (Map.Entry<Object, Object> entry : YamlUtils.loadMap(
+                sharedAssetsDirectory.resolve(ApplicationUUFMojo.SHARED_ASSETS_INDEX_FILE_NAME)).entrySet()) {
+            Path sharedFile = sharedAssetsDirectory.resolve(Paths.get(String.valueOf(entry.getValue())).getFileName());
+            if (Files.isRegularFile(sharedFile)) {
+                sharedAssets.put(String.valueOf(entry.getKey()), sharedFile);
+            }
+        }
+        return sharedAssets;
+    }
+
+    /**
+     * Reads the index of the bundles which is created when bundling assets.
+     *
+     * @param featureDirectory directory of the application feature
+     * @param assets           archive paths of the assets mapped to the files
+     * @return archive paths of the pages mapped to the files served for each bundled asset type, i.e. the bundles and
+     * the assets which are not bundled
+     */
+    private static Map<String, Map<String, List<Path>>> readPageBundles(Path featureDirectory,
+                                                                        Map<String, Path> assets) throws IOException {
+        Map<String, Map<String, List<Path>>> pageBundles = new TreeMap<>();
+        Path index = featureDirectory.resolve(AssetsBundler.BUNDLES_DIR_NAME).resolve(AssetsBundler.INDEX_FILE_NAME);
+        Map<Object, Object> content = YamlUtils.loadMap(index);
+        Object pages = content.get("pages");
+        Object bundles = content.get("bundles");
+        if (!(pages instanceof Map)) {
+            return pageBundles;
+        }
+        for (Map.Entry<?, ?> page : ((Map<?, ?>) pages).entrySet()) {
+            Map<String, List<Path>> servedFilesOfPage = new LinkedHashMap<>();
+            if (page.getValue() instanceof Map) {
+                for (Map.Entry<?, ?> type : ((Map<?, ?>) page.getValue()).entrySet()) {
+                    if (!(type.getValue() instanceof List)) {
+                        continue;
+                    }
+                    List<Path> servedFiles = new ArrayList<>();
+                    for (Object servedFile : (List<?>) type.getValue()) {
+                        String archivePath = String.valueOf(servedFile);
+                        // Bundles are listed in the index, any other file is an asset which is not bundled.
+                        Path file = (bundles instanceof Map && ((Map<?, ?>) bundles).containsKey(archivePath)) ?
+                                featureDirectory.resolve(archivePath) : assets.get(archivePath);
+                        if (file != null && Files.isRegularFile(file)) {
+                            servedFiles.add(file);
+                        }
+                    }
+                    servedFilesOfPage.put(String.valueOf(type.getKey()), servedFiles);
+                }
+            }
+            pageBundles.put(String.valueOf(page.getKey()), servedFilesOfPage);
+        }
+        return pageBundles;
+    }
+
+    private static Map<String, Object> createSizeEntry(Map<String, Path> files, ApplicationAnalyzer analyzer)
+            throws IOException {
+        long size = 0;
+        long compressedSize = 0;
+        for (Path file : files.values()) {
+            size += Files.size(file);
+            compressedSize += analyzer.getCompressedSize(file);
+        }
+        Map<String, Object> sizeEntry = new LinkedHashMap<>();
+        sizeEntry.put("files", files.size());
+        sizeEntry.put("size", size);
+        sizeEntry.put("compressedSize", compressedSize);
+        return sizeEntry;
+    }
+
+    /**
+     * Accepts the files of the application in its feature, i.e. skips the dependencies and the generated files which
+     * are laid out next to them.
+     */
+    private static class RootFilesFilter implements FileFilter {
+
+        private final Set<Path> generatedPaths = new HashSet<>();
+
+        RootFilesFilter(Path featureDirectory) {
+            for (String name : new String[]{ApplicationUUFMojo.COMPONENTS_NAME, ApplicationUUFMojo.THEMES_NAME,
+                    ApplicationUUFMojo.SHARED_ASSETS_NAME, AssetsBundler.BUNDLES_DIR_NAME,
+                    ApplicationUUFMojo.PAGE_ASSETS_FILE_NAME,
+                    ApplicationUUFMojo.CONFIG_BUNDLE_FILE_NAME}) {
+                generatedPaths.add(featureDirectory.resolve(name));
+            }
+        }
+
+        @Override
+        public boolean accept(File file) {
+            return !generatedPaths.contains(file.toPath());
+        }
+    }
+}
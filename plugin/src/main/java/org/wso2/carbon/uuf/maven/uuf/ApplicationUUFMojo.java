@@ -16,6 +16,9 @@
 
 package org.wso2.carbon.uuf.maven.uuf;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.BuildPluginManager;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -27,16 +30,44 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.twdata.maven.mojoexecutor.MojoExecutor.Element;
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+import org.wso2.carbon.uuf.maven.model.Theme;
 import org.wso2.carbon.uuf.maven.util.AppsFinder;
+import org.wso2.carbon.uuf.maven.util.AssetsBundler;
+import org.wso2.carbon.uuf.maven.util.ConfigurationBundler;
+import org.wso2.carbon.uuf.maven.util.CssPurger;
+import org.wso2.carbon.uuf.maven.util.DependencyTree;
+import org.wso2.carbon.uuf.maven.util.DuplicateAssetsFinder;
+import org.wso2.carbon.uuf.maven.util.HashUtils;
+import org.wso2.carbon.uuf.maven.util.PageAssetsResolver;
+import org.wso2.carbon.uuf.maven.util.TarIndex;
+import org.wso2.carbon.uuf.maven.util.UnusedFragmentsFinder;
+import org.wso2.carbon.uuf.maven.util.YamlUtils;
+import org.wso2.carbon.uuf.maven.util.image.ImageOptimizer;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
@@ -56,11 +87,19 @@ import static org.twdata.maven.mojoexecutor.MojoExecutor.version;
       threadSafe = true, defaultPhase = LifecyclePhase.PACKAGE)
 public class ApplicationUUFMojo extends AbstractUUFMojo {
     private static final String ROOT_COMPONENT_NAME = "root";
-    private static final String COMPONENTS_NAME = "components";
-    private static final String THEMES_PATH = "./themes/";
+    static final String COMPONENTS_NAME = "components";
+    static final String THEMES_NAME = "themes";
+    private static final String THEMES_PATH = "./" + THEMES_NAME + "/";
     private static final String COMPONENTS_PATH = "./" + COMPONENTS_NAME + "/";
     private static final String THEME_CONFIG_FILE_NAME = "theme.yaml";
-    private static final String DEPENDENCY_TREE_FILE_NAME = "dependency.tree";
+    static final String DEPENDENCY_TREE_FILE_NAME = DependencyTree.FILE_NAME;
+    static final String PAGE_ASSETS_FILE_NAME = "page-assets.yaml";
+    static final String CONFIG_BUNDLE_FILE_NAME = "config-bundle.yaml";
+    private static final String UNUSED_FRAGMENTS_REPORT_FILE_NAME = "uuf-unused-fragments.yaml";
+    private static final String CSS_PURGE_REPORT_FILE_NAME = "uuf-css-purge.yaml";
+    private static final String CSS_EXTENSION = ".css";
+    static final String SHARED_ASSETS_NAME = "shared";
+    static final String SHARED_ASSETS_INDEX_FILE_NAME = "index.yaml";
 
     /**
      * The dependency plugin version to use.
@@ -68,40 +107,107 @@ public class ApplicationUUFMojo extends AbstractUUFMojo {
     @Parameter(defaultValue = "2.1")
     private String dependencyPluginVersion;
 
+    /**
+     * Whether to remove the fragments which cannot be reached from any page, binding, client JS or kept fragment
+     * (together with their public assets), and the dependent components which have nothing left to render, from the
+     * application.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean removeUnusedFragments;
+
+    /**
+     * Fragments which should be kept when removing unused fragments, e.g. fragments referenced only dynamically. Unused
+     * fragments are not removed from an application which references fragments dynamically unless this is set.
+     */
+    @Parameter
+    private List<String> keepFragments = new ArrayList<>();
+
+    /**
+     * Whether to remove the rules of the theme CSS files whose selectors refer to classes or IDs which are not used in
+     * any template or client JS file of the application.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean purgeThemeCss;
+
+    /**
+     * Class and ID names (regular expressions) which should be kept when purging the theme CSS files, e.g. names
+     * which are composed dynamically.
+     */
+    @Parameter
+    private List<String> cssSafelist = new ArrayList<>();
+
+    /**
+     * Whether to store the public assets which are bundled more than once across components and themes only once,
+     * in a shared store indexed by the original paths. The original paths are removed from the feature, hence the
+     * deduplicated assets are served only by a runtime which consults the index of the store.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean deduplicateAssets;
+
+    /**
+     * Whether to concatenate the CSS, head JS and JS assets of each page into bundles, so that a page can be served
+     * with one request per asset type.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean bundleAssets;
+
+    /**
+     * Files and directories of this application which are excluded from the packaged application.
+     */
+    private final List<Path> excludedRootPaths = new ArrayList<>();
+
     public void execute() throws MojoExecutionException {
         unpackDependencies();
         createDependencyConfig("::" + THEME_ASSEMBLY_FORMAT + ":");
         normalizeAppDependencies();
-        executeFeatureDependecies();
+        Application application = readApplication();
+        if (removeUnusedFragments) {
+            removeUnusedFragments(application);
+        }
+        if (purgeThemeCss) {
+            purgeThemeCss(application);
+        }
+        Map<String, PageAssets> pages = createPageAssetsManifest(application);
+        createConfigurationBundle(application);
+        if (bundleAssets) {
+            bundleAssets(application, pages);
+        }
+        if (deduplicateAssets) {
+            deduplicateAssets(application);
+        }
+        optimizeProjectImages();
+        optimizeImagesInPlace(getUUFTempDirectory());
         createFeature();
 //        super.execute();
     }
 
-    private void executeFeatureDependecies() throws MojoExecutionException {
-        //Adding dependent components and themes
-        Path uufTempDirectory = getUUFTempDirectory();
-        try {
-            DependencyHolder dependencies = getDependencies(uufTempDirectory);
-            for (Path currentTheme : dependencies.getThemes()) {
-                fileSets.add(createFileSet(currentTheme.toString(), THEMES_PATH + currentTheme.getFileName()));
-            }
-            for (Path currentComponent : dependencies.getComponents()) {
-                fileSets.add(
-                        createFileSet(currentComponent.toString(), COMPONENTS_PATH + currentComponent.getFileName())
-                );
-            }
-        } catch (IOException e) {
-            throw new MojoExecutionException(
-                    "Error occurred while reading extracted dependencies on '" + uufTempDirectory.toString() + "'");
-        }
-    }
-
     @Override
     protected Assembly getAssembly() throws MojoFailureException {
         return createApplicationAssembly("make-application", "/" + getArtifactId());
     }
 
     private void unpackDependencies() throws MojoExecutionException {
+        // Indexed theme archives are extracted by offset. The dependency plugin can only exclude artifacts by
+        // artifact ID (regardless of group ID), hence theme archives are excluded by type and the themes which are
+        // not indexed are unpacked individually by their coordinates.
+        Map<Artifact, TarIndex> indexedThemes = getIndexedThemes();
+        // Extracted dependencies may have been modified in place by an earlier build (e.g. pruned or purged), hence
+        // they are extracted afresh in every build, regardless of the options of this build.
+        List<Element> overWriteConfiguration = new ArrayList<>();
+        overWriteConfiguration.add(element(name("overWriteReleases"), "true"));
+        overWriteConfiguration.add(element(name("overWriteSnapshots"), "true"));
+        List<Element> configuration = new ArrayList<>(overWriteConfiguration);
+        configuration.add(element(name("outputDirectory"), getUUFTempDirectory().toString()));
+        List<Element> themeItems = new ArrayList<>();
+        if (!indexedThemes.isEmpty()) {
+            configuration.add(element(name("excludeTypes"), THEME_ASSEMBLY_FORMAT));
+            for (Object dependency : getProject().getArtifacts()) {
+                Artifact artifact = (Artifact) dependency;
+                if (THEME_ASSEMBLY_FORMAT.equals(artifact.getType()) && !indexedThemes.containsKey(artifact)) {
+                    themeItems.add(createArtifactItem(artifact));
+                }
+            }
+        }
         executeMojo(
                 plugin(
                         groupId("org.apache.maven.plugins"),
@@ -109,9 +215,75 @@ public class ApplicationUUFMojo extends AbstractUUFMojo {
                         version(dependencyPluginVersion)
                 ),
                 goal("unpack-dependencies"),
-                configuration(element(name("outputDirectory"), getUUFTempDirectory().toString())),
+                configuration(configuration.toArray(new Element[configuration.size()])),
                 executionEnvironment(getProject(), getMavenSession(), getPluginManager())
         );
+        if (!themeItems.isEmpty()) {
+            List<Element> themeConfiguration = new ArrayList<>(overWriteConfiguration);
+            themeConfiguration.add(element(name("outputDirectory"), getUUFTempDirectory().toString()));
+            themeConfiguration.add(element(name("artifactItems"),
+                                           themeItems.toArray(new Element[themeItems.size()])));
+            executeMojo(
+                    plugin(
+                            groupId("org.apache.maven.plugins"),
+                            artifactId("maven-dependency-plugin"),
+                            version(dependencyPluginVersion)
+                    ),
+                    goal("unpack"),
+                    configuration(themeConfiguration.toArray(new Element[themeConfiguration.size()])),
+                    executionEnvironment(getProject(), getMavenSession(), getPluginManager())
+            );
+        }
+
+        int threads = getThreadCount();
+        for (Map.Entry<Artifact, TarIndex> entry : indexedThemes.entrySet()) {
+            Path themeArchive = entry.getKey().getFile().toPath();
+            try {
+                entry.getValue().extract(themeArchive, getUUFTempDirectory(), threads);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot extract theme archive '" + themeArchive + "'.", e);
+            }
+        }
+        // Extracting by offset skips the index, but an index extracted otherwise (e.g. by an earlier build) must not
+        // be packaged.
+        try {
+            Files.deleteIfExists(getUUFTempDirectory().resolve(TarIndex.INDEX_ENTRY_NAME));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot delete extracted tar index '" + TarIndex.INDEX_ENTRY_NAME +
+                                                     "'.", e);
+        }
+    }
+
+    private static Element createArtifactItem(Artifact artifact) {
+        List<Element> coordinates = new ArrayList<>();
+        coordinates.add(element(name("groupId"), artifact.getGroupId()));
+        coordinates.add(element(name("artifactId"), artifact.getArtifactId()));
+        coordinates.add(element(name("version"), artifact.getBaseVersion()));
+        coordinates.add(element(name("type"), artifact.getType()));
+        if (artifact.hasClassifier()) {
+            coordinates.add(element(name("classifier"), artifact.getClassifier()));
+        }
+        return element(name("artifactItem"), coordinates.toArray(new Element[coordinates.size()]));
+    }
+
+    private Map<Artifact, TarIndex> getIndexedThemes() throws MojoExecutionException {
+        Map<Artifact, TarIndex> indexedThemes = new LinkedHashMap<>();
+        for (Object dependency : getProject().getArtifacts()) {
+            Artifact artifact = (Artifact) dependency;
+            File file = artifact.getFile();
+            if (!THEME_ASSEMBLY_FORMAT.equals(artifact.getType()) || (file == null) || !file.isFile()) {
+                continue;
+            }
+            try {
+                TarIndex tarIndex = TarIndex.read(file.toPath());
+                if (tarIndex != null) {
+                    indexedThemes.put(artifact, tarIndex);
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Cannot read the index of theme archive '" + file + "'.", e);
+            }
+        }
+        return indexedThemes;
     }
 
     private void createDependencyConfig(String excludes) throws MojoExecutionException {
@@ -147,6 +319,330 @@ public class ApplicationUUFMojo extends AbstractUUFMojo {
         }
     }
 
+    private Application readApplication() throws MojoExecutionException {
+        try {
+            List<String> syntaxErrors = ConfigurationBundler.checkSyntax(getBasedir().toPath(), getUUFTempDirectory());
+            if (!syntaxErrors.isEmpty()) {
+                for (String syntaxError : syntaxErrors) {
+                    getLog().error(syntaxError);
+                }
+                throw new MojoExecutionException("Malformed configuration in application '" + getArtifactId() + "': " +
+                                                         syntaxErrors.get(0));
+            }
+            return Application.read(getBasedir().toPath(), getUUFTempDirectory());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the layout of application '" + getArtifactId() + "'.", e);
+        }
+    }
+
+    /**
+     * Removes the fragments which cannot be reached from any page, binding, client JS or kept fragment, and then the
+     * dependent components which have nothing left to render. Fragments and components of the dependencies are
+     * deleted from the extracted dependencies, which are packaged into the feature, while fragments of this
+     * application are excluded when packaging. Nothing is removed if a reference cannot be followed: references to
+     * missing fragments or layouts, and references by a non-literal name unless the fragments they refer to are
+     * listed in {@code keepFragments}. Removed fragments and components are reported in the build output directory.
+     *
+     * @param application application to analyze
+     * @throws MojoExecutionException if the unused fragments cannot be found or removed
+     */
+    private void removeUnusedFragments(Application application) throws MojoExecutionException {
+        Path report = getBuildDirectory().resolve(UNUSED_FRAGMENTS_REPORT_FILE_NAME);
+        try {
+            UnusedFragmentsFinder finder = new UnusedFragmentsFinder(application, keepFragments);
+            SortedMap<String, List<Path>> unusedFragments = finder.find();
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("unresolvedReferences", new ArrayList<>(finder.getUnresolvedReferences()));
+            content.put("dynamicReferences", new ArrayList<>(finder.getDynamicReferences()));
+            for (String reference : finder.getUnresolvedReferences()) {
+                getLog().warn("Cannot resolve '" + reference + "' when finding unused fragments.");
+            }
+            for (String reference : finder.getDynamicReferences()) {
+                getLog().warn("Cannot follow '" + reference + "' when finding unused fragments" +
+                                      (keepFragments.isEmpty() ? "." : "; assuming it is covered by keepFragments."));
+            }
+            if (!finder.getUnresolvedReferences().isEmpty() ||
+                    (!finder.getDynamicReferences().isEmpty() && keepFragments.isEmpty())) {
+                YamlUtils.write(report, content);
+                getLog().warn("Not removing unused fragments of application '" + getArtifactId() + "', since the " +
+                                      "fragments reached by the references above cannot be known. Fix the " +
+                                      "unresolved references and list the fragments which are referenced " +
+                                      "dynamically in keepFragments. See '" + report + "' for details.");
+                return;
+            }
+
+            Map<String, Object> removedFragments = new LinkedHashMap<>();
+            long totalSize = 0;
+            for (Map.Entry<String, List<Path>> entry : unusedFragments.entrySet()) {
+                long size = removeFromApplication(entry.getValue());
+                removedFragments.put(entry.getKey(), size);
+                totalSize += size;
+                getLog().info("Removing unused fragment '" + entry.getKey() + "' (" + size + " bytes).");
+            }
+            Map<String, Object> removedComponents = new LinkedHashMap<>();
+            for (Map.Entry<String, List<Path>> entry : finder.findUnusedComponents(unusedFragments.keySet())
+                    .entrySet()) {
+                long size = removeFromApplication(entry.getValue());
+                removedComponents.put(entry.getKey(), size);
+                totalSize += size;
+                getLog().info("Removing unused component '" + entry.getKey() + "' (" + size + " bytes).");
+            }
+            content.put("removedFragments", removedFragments);
+            content.put("removedComponents", removedComponents);
+            content.put("removedBytes", totalSize);
+            YamlUtils.write(report, content);
+            getLog().info("Removed " + removedFragments.size() + " unused fragment(s) and " +
+                                  removedComponents.size() + " unused component(s) of " + totalSize + " bytes. See '" +
+                                  report + "' for details.");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot remove unused fragments of application '" + getArtifactId() +
+                                                     "'.", e);
+        }
+    }
+
+    /**
+     * Removes the rules whose selectors refer to unused classes or IDs from the CSS files of the extracted themes,
+     * which are packaged into the feature. The removed bytes are reported in the build output directory.
+     *
+     * @param application application to analyze
+     * @throws MojoExecutionException if the theme CSS files cannot be purged
+     */
+    private void purgeThemeCss(Application application) throws MojoExecutionException {
+        Path report = getBuildDirectory().resolve(CSS_PURGE_REPORT_FILE_NAME);
+        List<Pattern> safelist = new ArrayList<>();
+        for (String safelistEntry : cssSafelist) {
+            try {
+                safelist.add(Pattern.compile(safelistEntry.trim()));
+            } catch (PatternSyntaxException e) {
+                throw new MojoExecutionException("Invalid CSS safelist entry '" + safelistEntry + "'.", e);
+            }
+        }
+        try {
+            CssPurger cssPurger = new CssPurger(CssPurger.readUsedNames(application), safelist);
+            Map<String, Object> purgedFiles = new TreeMap<>();
+            long totalRemovedBytes = 0;
+            for (Theme theme : application.getThemes().values()) {
+                for (Map.Entry<String, Path> entry : theme.getPublicFiles().entrySet()) {
+                    if (!entry.getKey().endsWith(CSS_EXTENSION)) {
+                        continue;
+                    }
+                    long removedBytes = cssPurger.purge(entry.getValue());
+                    if (removedBytes > 0) {
+                        purgedFiles.put(theme.getArchivePath(entry.getKey()), removedBytes);
+                        totalRemovedBytes += removedBytes;
+                    }
+                }
+            }
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("purgedFiles", purgedFiles);
+            content.put("removedBytes", totalRemovedBytes);
+            YamlUtils.write(report, content);
+            getLog().info("Removed " + totalRemovedBytes + " bytes of unused CSS rules from " + purgedFiles.size() +
+                                  " theme CSS file(s). See '" + report + "' for details.");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot purge theme CSS files of application '" + getArtifactId() +
+                                                     "'.", e);
+        }
+    }
+
+    /**
+     * Moves the public assets which appear more than once across the components and themes into the shared assets
+     * store, where each content is stored once under its content hash. Shared images are optimized, if enabled, before
+     * they are named. The store contains an index which maps the original paths in the feature to the shared files.
+     * Nothing in this plugin reads the index, i.e. the runtime has to resolve the removed paths through it.
+     *
+     * @param application application to analyze
+     * @throws MojoExecutionException if the duplicate assets cannot be found or moved
+     */
+    private void deduplicateAssets(Application application) throws MojoExecutionException {
+        Path sharedAssetsDirectory = getSharedAssetsDirectory();
+        try {
+            FileUtils.deleteDirectory(sharedAssetsDirectory.toFile());
+            createDirectoryIfNotExists(sharedAssetsDirectory);
+            Map<String, Path> sharedFiles = new TreeMap<>();
+            List<Path> sharedImages = new ArrayList<>();
+            long savedBytes = 0;
+            for (Map.Entry<String, SortedMap<String, Path>> entry : new DuplicateAssetsFinder(application).find()
+                    .entrySet()) {
+                SortedMap<String, Path> identicalFiles = entry.getValue();
+                Path source = identicalFiles.get(identicalFiles.firstKey());
+                Path sharedFile = sharedAssetsDirectory.resolve(getSharedFileName(entry.getKey(), source));
+                Files.copy(source, sharedFile);
+                if (ImageOptimizer.isSupported(sharedFile)) {
+                    sharedImages.add(sharedFile);
+                }
+                savedBytes += Files.size(source) * (identicalFiles.size() - 1);
+                for (Map.Entry<String, Path> identicalFile : identicalFiles.entrySet()) {
+                    sharedFiles.put(identicalFile.getKey(), sharedFile);
+                    removeFromApplication(identicalFile.getValue());
+                }
+            }
+
+            // Optimizing changes the content of the shared images, hence they are renamed by their new content hash.
+            optimizeImagesInPlace(sharedImages, sharedAssetsDirectory);
+            Map<Path, Path> renamedFiles = new HashMap<>();
+            for (Path sharedImage : sharedImages) {
+                Path renamedImage = sharedImage.resolveSibling(getSharedFileName(HashUtils.sha256(sharedImage),
+                                                                                 sharedImage));
+                if (!renamedImage.equals(sharedImage)) {
+                    Files.move(sharedImage, renamedImage, StandardCopyOption.REPLACE_EXISTING);
+                    renamedFiles.put(sharedImage, renamedImage);
+                }
+            }
+            Map<String, Object> index = new TreeMap<>();
+            Set<Path> storedFiles = new HashSet<>();
+            for (Map.Entry<String, Path> entry : sharedFiles.entrySet()) {
+                Path sharedFile = renamedFiles.containsKey(entry.getValue()) ? renamedFiles.get(entry.getValue()) :
+                        entry.getValue();
+                index.put(entry.getKey(), SHARED_ASSETS_NAME + "/" + sharedFile.getFileName());
+                storedFiles.add(sharedFile);
+            }
+            YamlUtils.write(sharedAssetsDirectory.resolve(SHARED_ASSETS_INDEX_FILE_NAME), index);
+            getLog().info("Moved " + index.size() + " duplicate asset(s) into " + storedFiles.size() +
+                                  " shared file(s), saving " + savedBytes + " bytes.");
+            if (!index.isEmpty()) {
+                getLog().warn("Deduplicated assets are removed from their original paths and can be served only by " +
+                                      "a runtime which resolves them through '" + SHARED_ASSETS_NAME + "/" +
+                                      SHARED_ASSETS_INDEX_FILE_NAME + "'.");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot deduplicate assets of application '" + getArtifactId() + "'.",
+                                             e);
+        }
+    }
+
+    private static String getSharedFileName(String hash, Path file) {
+        String extension = FilenameUtils.getExtension(file.getFileName().toString());
+        return extension.isEmpty() ? hash : hash + "." + extension;
+    }
+
+    /**
+     * Removes the given file or directory from the packaged application. Extracted dependencies are deleted while
+     * the files of this application are excluded when packaging.
+     *
+     * @param path file or directory to remove
+     * @throws IOException if the path cannot be deleted
+     */
+    private void removeFromApplication(Path path) throws IOException {
+        if (path.startsWith(getUUFTempDirectory())) {
+            FileUtils.forceDelete(path.toFile());
+        } else {
+            excludedRootPaths.add(path);
+        }
+    }
+
+    /**
+     * Removes the given directories from the packaged application, see {@link #removeFromApplication(Path)}.
+     *
+     * @param directories directories to remove
+     * @return size of the removed directories in bytes
+     * @throws IOException if a directory cannot be deleted
+     */
+    private long removeFromApplication(List<Path> directories) throws IOException {
+        long size = 0;
+        for (Path directory : directories) {
+            size += FileUtils.sizeOfDirectory(directory.toFile());
+            removeFromApplication(directory);
+        }
+        return size;
+    }
+
+    /**
+     * Resolves the layouts, fragments and assets of each page and writes them into the page assets manifest, so that
+     * the runtime can preload and batch the assets of a page without resolving its fragment tree per request. Paths
+     * in the manifest are relative to the application directory of the feature.
+     *
+     * @param application application to analyze
+     * @return archive paths of the pages mapped to their assets
+     * @throws MojoExecutionException if the application cannot be analyzed or the manifest cannot be written
+     */
+    private Map<String, PageAssets> createPageAssetsManifest(Application application)
+            throws MojoExecutionException {
+        Path manifest = getUUFTempDirectory().resolve(PAGE_ASSETS_FILE_NAME);
+        try {
+            PageAssetsResolver resolver = new PageAssetsResolver(application);
+            Map<String, PageAssets> pageAssets = resolver.resolve();
+            Map<String, Object> pages = new LinkedHashMap<>();
+            for (Map.Entry<String, PageAssets> entry : pageAssets.entrySet()) {
+                pages.put(entry.getKey(), entry.getValue().toMap());
+            }
+            for (String reference : resolver.getUnresolvedReferences()) {
+                getLog().warn("Cannot resolve '" + reference + "' when creating the page assets manifest.");
+            }
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("theme", application.getThemeName());
+            content.put("pages", pages);
+            YamlUtils.write(manifest, content);
+            return pageAssets;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot create page assets manifest '" + manifest + "'.", e);
+        }
+    }
+
+    /**
+     * Concatenates the CSS, head JS and JS assets of each page into bundles, in dependency order. The bundles index
+     * maps each page to the bundles and the assets which are not bundled, so that the runtime can serve them.
+     *
+     * @param application application to bundle the assets of
+     * @param pages       archive paths of the pages mapped to their assets
+     * @throws MojoExecutionException if the assets cannot be bundled
+     */
+    private void bundleAssets(Application application, Map<String, PageAssets> pages)
+            throws MojoExecutionException {
+        Path bundlesDirectory = getBundlesDirectory();
+        try {
+            List<String> dependencyOrder = DependencyTree.readDependencyOrder(
+                    getUUFTempDirectory().resolve(DEPENDENCY_TREE_FILE_NAME));
+            AssetsBundler bundler = new AssetsBundler(application, dependencyOrder, bundlesDirectory);
+            int bundles = bundler.bundle(pages);
+            for (String missingAsset : bundler.getMissingAssets()) {
+                getLog().warn("Cannot find asset '" + missingAsset + "' when bundling the assets of the pages.");
+            }
+            for (String importingAsset : bundler.getImportingAssets()) {
+                getLog().warn("CSS asset '" + importingAsset + "' contains @import rules, hence it is served on its own " +
+                                      "instead of being bundled.");
+            }
+            for (String relativeUrlAsset : bundler.getRelativeUrlAssets()) {
+                getLog().warn("CSS asset '" + relativeUrlAsset + "' contains relative URLs, hence it is served on its " +
+                                      "own instead of being bundled.");
+            }
+            getLog().info("Bundled the assets of " + pages.size() + " page(s) into " + bundles + " bundle(s), " +
+                                  bundler.getWrittenBundles() + " of them changed.");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot bundle assets of application '" + getArtifactId() + "'.", e);
+        }
+    }
+
+    /**
+     * Validates the configurations of the application and its dependencies and writes them, merged, into the
+     * configuration bundle, so that the runtime can load the configuration of the application in one read.
+     *
+     * @param application application to bundle the configurations of
+     * @throws MojoExecutionException if a configuration is invalid or the bundle cannot be written
+     */
+    private void createConfigurationBundle(Application application) throws MojoExecutionException {
+        Path configBundle = getUUFTempDirectory().resolve(CONFIG_BUNDLE_FILE_NAME);
+        try {
+            List<String> dependencyOrder = DependencyTree.readDependencyOrder(
+                    getUUFTempDirectory().resolve(DEPENDENCY_TREE_FILE_NAME));
+            ConfigurationBundler bundler = new ConfigurationBundler(application, dependencyOrder);
+            Map<String, Object> bundle = bundler.bundle();
+            for (String warning : bundler.getWarnings()) {
+                getLog().warn(warning);
+            }
+            if (!bundler.getErrors().isEmpty()) {
+                for (String error : bundler.getErrors()) {
+                    getLog().error(error);
+                }
+                throw new MojoExecutionException("Invalid configuration in application '" + getArtifactId() + "': " +
+                                                         bundler.getErrors().get(0));
+            }
+            YamlUtils.writeCompact(configBundle, bundle);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot create configuration bundle '" + configBundle + "'.", e);
+        }
+    }
+
     private Assembly createApplicationAssembly(String assemblyId, String baseDirectory) throws MojoFailureException {
         Assembly assembly = new Assembly();
         assembly.setId(assemblyId);
@@ -205,6 +701,127 @@ public class ApplicationUUFMojo extends AbstractUUFMojo {
         return new DependencyHolder(components, themes);
     }
 
+    @Override
+    protected FileFilter getFeatureFileFilter() {
+        if (excludedRootPaths.isEmpty()) {
+            return null;
+        }
+        return new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                Path path = file.toPath();
+                for (Path excludedPath : excludedRootPaths) {
+                    if (path.startsWith(excludedPath)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Adds the generated files into the feature. The dependent components and themes, as extracted and processed when
+     * packaging, are added only if packaging modifies them (see {@link #isPackagingDependencies()}).
+     */
+    @Override
+    protected void addFeatureFiles(Path featureDirectory) throws IOException {
+        Path uufTempDirectory = getUUFTempDirectory();
+        if (isPackagingDependencies()) {
+            addDependencies(uufTempDirectory, getBasedir().toPath(), featureDirectory);
+        }
+        Files.copy(uufTempDirectory.resolve(PAGE_ASSETS_FILE_NAME), featureDirectory.resolve(PAGE_ASSETS_FILE_NAME),
+                   StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(uufTempDirectory.resolve(CONFIG_BUNDLE_FILE_NAME),
+                   featureDirectory.resolve(CONFIG_BUNDLE_FILE_NAME), StandardCopyOption.REPLACE_EXISTING);
+        if (deduplicateAssets) {
+            FileUtils.copyDirectory(getSharedAssetsDirectory().toFile(),
+                                    featureDirectory.resolve(SHARED_ASSETS_NAME).toFile());
+        }
+        if (bundleAssets) {
+            FileUtils.copyDirectory(getBundlesDirectory().toFile(),
+                                    featureDirectory.resolve(AssetsBundler.BUNDLES_DIR_NAME).toFile());
+        }
+    }
+
+    /**
+     * Returns whether the dependencies are packaged into the feature. Removing unused fragments, purging theme CSS,
+     * deduplicating assets and optimizing images modify the extracted dependencies, hence the feature has to carry the
+     * modified copies. The runtime then has to deploy the dependencies from the feature instead of their own
+     * artifacts. Otherwise the feature contains the files of this application and the generated files only.
+     *
+     * @return {@code true} if the extracted dependencies are packaged into the feature
+     */
+    private boolean isPackagingDependencies() {
+        return removeUnusedFragments || purgeThemeCss || deduplicateAssets || isOptimizeImages();
+    }
+
+    /**
+     * Adds the extracted dependencies into the given feature directory, which already contains the files of this
+     * application. Components and themes are laid out in {@code components/<name>} and {@code themes/<name>}, while
+     * the root components of the dependent applications are merged into this application, without overriding its
+     * files. A file of this application shadows the file at the same path of a dependent application even if it is not
+     * in the feature (e.g. moved to the shared assets store), hence the shadowed file is not merged either. This is the layout which the paths of the generated files refer to (see
+     * {@link org.wso2.carbon.uuf.maven.model.Component#getArchivePath(String)}), and the layout which the runtime has
+     * to load the application from when the dependencies are packaged.
+     *
+     * @param uufTempDirectory     directory where the dependencies are extracted to
+     * @param applicationDirectory directory of this application
+     * @param featureDirectory     directory which is deployed by the feature
+     * @throws IOException if the dependencies cannot be copied
+     */
+    static void addDependencies(Path uufTempDirectory, Path applicationDirectory, Path featureDirectory)
+            throws IOException {
+        Path componentsDirectory = featureDirectory.resolve(COMPONENTS_NAME);
+        DependencyHolder dependencies = getDependencies(uufTempDirectory);
+        for (Path theme : dependencies.getThemes()) {
+            FileUtils.copyDirectory(theme.toFile(),
+                                    featureDirectory.resolve(THEMES_NAME).resolve(theme.getFileName()).toFile());
+        }
+        for (Path component : dependencies.getComponents()) {
+            if (ROOT_COMPONENT_NAME.equals(component.getFileName().toString())) {
+                mergeDirectory(component, applicationDirectory, featureDirectory);
+            } else {
+                FileUtils.copyDirectory(component.toFile(),
+                                        componentsDirectory.resolve(component.getFileName()).toFile());
+            }
+        }
+        Path dependencyTree = uufTempDirectory.resolve(DEPENDENCY_TREE_FILE_NAME);
+        if (Files.isRegularFile(dependencyTree)) {
+            Files.createDirectories(componentsDirectory);
+            Files.copy(dependencyTree, componentsDirectory.resolve(DEPENDENCY_TREE_FILE_NAME),
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Copies the files of the given source directory which exist neither in the given shadowing directory nor in the
+     * given target directory.
+     */
+    private static void mergeDirectory(final Path source, final Path shadowingDirectory, final Path target)
+            throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relativePath = source.relativize(file).toString();
+                Path targetFile = target.resolve(relativePath);
+                if (!Files.exists(shadowingDirectory.resolve(relativePath)) && !Files.exists(targetFile)) {
+                    Files.createDirectories(targetFile.getParent());
+                    Files.copy(file, targetFile);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private Path getSharedAssetsDirectory() {
+        return getBuildDirectory().resolve("uuf-" + SHARED_ASSETS_NAME);
+    }
+
+    private Path getBundlesDirectory() {
+        return getBuildDirectory().resolve("uuf-" + AssetsBundler.BUNDLES_DIR_NAME);
+    }
+
     protected Path getUUFOsgiConfigOutDirectory() {
         return getUUFTempDirectory().resolve(ROOT_COMPONENT_NAME);
     }
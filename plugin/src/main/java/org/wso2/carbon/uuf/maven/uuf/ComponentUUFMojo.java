@@ -35,6 +35,7 @@ import java.util.List;
 public class ComponentUUFMojo extends AbstractUUFMojo {
 
     public void execute() throws MojoExecutionException, MojoFailureException {
+        optimizeProjectImages();
         createFeature();
         //super.execute();
     }
@@ -16,13 +16,18 @@
 
 package org.wso2.carbon.uuf.maven.uuf;
 
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.assembly.model.Assembly;
 import org.apache.maven.plugin.assembly.model.FileSet;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.wso2.carbon.uuf.maven.util.TarIndex;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +38,31 @@ import java.util.List;
       threadSafe = true, defaultPhase = LifecyclePhase.PACKAGE)
 public class ThemeUUFMojo extends AbstractUUFMojo {
 
+    /**
+     * Whether to embed an index of the entry offsets into the theme archive, which allows to read and extract its
+     * entries without scanning the whole archive.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean indexArchive;
+
+    @Override
+    protected void postProcessArchive(File archive) throws MojoExecutionException {
+        if (!indexArchive) {
+            return;
+        }
+        try {
+            TarIndex tarIndex = TarIndex.create(archive.toPath());
+            if (tarIndex == null) {
+                getLog().warn("Theme archive '" + archive + "' contains entries other than files and directories. " +
+                                      "Hence it is not indexed.");
+                return;
+            }
+            tarIndex.appendTo(archive.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot index theme archive '" + archive + "'.", e);
+        }
+    }
+
     @Override
     protected Assembly getAssembly() throws MojoFailureException {
         return createThemeAssembly("make-theme", "/" + getArtifactId());
@@ -45,7 +75,9 @@ public class ThemeUUFMojo extends AbstractUUFMojo {
 
         FileSet fileSet1 = createFileSet(getBasedir().getAbsolutePath(), "./");
         FileSet fileSet2 = createFileSet(getUUFTempDirectory().toString(), "./");
-        assembly.setFileSets(createFileSetList(fileSet1, fileSet2));
+        List<FileSet> fileSets = new ArrayList<>(createFileSetList(fileSet1, fileSet2));
+        addOptimizedImages(fileSets, fileSet1);
+        assembly.setFileSets(fileSets);
 
         List<String> formatsList = new ArrayList<>();
         formatsList.add(THEME_ASSEMBLY_FORMAT);
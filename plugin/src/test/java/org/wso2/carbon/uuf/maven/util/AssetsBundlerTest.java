@@ -0,0 +1,142 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AssetsBundlerTest extends FileSystemTestCase {
+
+    private static final String THEME_CSS = "themes/org.wso2.test.theme/public/css/theme.css";
+    private static final String FOUNDATION_CSS = "components/foundation/public/css/foundation.css";
+    private static final String FOUNDATION_JS = "components/foundation/public/js/foundation.js";
+    private static final String ABSOLUTE_URLS = "body { background: url(\"https://cdn.example.com/bg.png\"); }\n" +
+            ".logo { background: url(/images/logo.png); }\n" +
+            ".dot { background: url('data:image/gif;base64,R0lGODlhAQABAAAAACw='); }\n" +
+            ".icon { behavior: url(#default); }\n";
+
+    private Path application;
+    private Path dependencies;
+    private Path bundlesDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        application = directory.resolve("application");
+        dependencies = directory.resolve("dependencies");
+        bundlesDirectory = directory.resolve("bundles");
+
+        write(application.resolve("public/css/app.css"), "/* url(../images/commented.png) */\n.app {}\n");
+        write(application.resolve("public/css/absolute.css"), ABSOLUTE_URLS);
+        write(application.resolve("public/css/icons.css"), ".icon { src: url('../fonts/icons.woff?v=1'); }\n");
+        write(application.resolve("public/css/importing.css"), "@import url(\"base.css\");\n");
+        write(application.resolve("public/js/app.js"), "app()");
+        write(dependencies.resolve("foundation/public/css/foundation.css"), ".foundation {}\n");
+        write(dependencies.resolve("foundation/public/js/foundation.js"), "foundation()");
+        write(dependencies.resolve("org.wso2.test.theme/theme.yaml"), "css: css/theme.css\n");
+        write(dependencies.resolve("org.wso2.test.theme/public/css/theme.css"), "body {}\n");
+        write(dependencies.resolve(DependencyTree.FILE_NAME),
+              "org.wso2.test:org.wso2.test.app:carbon-feature:1.0.0\n" +
+                      "\\- org.wso2.test:org.wso2.test.foundation:zip:1.0.0:compile\n");
+        write(bundlesDirectory.resolve("stale.css"), ".stale {}\n");
+    }
+
+    public void testBundles() throws IOException {
+        Map<String, PageAssets> pages = new LinkedHashMap<>();
+        pages.put("pages/index.hbs", createPageAssets(
+                Arrays.asList("public/css/app.css", THEME_CSS, FOUNDATION_CSS, "public/css/absolute.css"),
+                Collections.<String>emptyList(), Arrays.asList("public/js/app.js", FOUNDATION_JS)));
+        pages.put("pages/icons.hbs", createPageAssets(
+                Arrays.asList("public/css/icons.css", "public/css/app.css", THEME_CSS),
+                Collections.<String>emptyList(), Arrays.asList("public/js/app.js", FOUNDATION_JS)));
+        pages.put("pages/import.hbs", createPageAssets(
+                Collections.singletonList("public/css/importing.css"),
+                Collections.singletonList("public/js/missing.js"), Collections.<String>emptyList()));
+
+        AssetsBundler bundler = new AssetsBundler(Application.read(application, dependencies),
+                                                  DependencyTree.readDependencyOrder(
+                                                          dependencies.resolve(DependencyTree.FILE_NAME)),
+                                                  bundlesDirectory);
+        assertEquals(4, bundler.bundle(pages));
+        assertEquals(4, bundler.getWrittenBundles());
+        assertEquals(Collections.singleton("public/js/missing.js"), bundler.getMissingAssets());
+        assertEquals(Collections.singleton("public/css/importing.css"), bundler.getImportingAssets());
+        assertEquals(Collections.singleton("public/css/icons.css"), bundler.getRelativeUrlAssets());
+        assertFalse(Files.exists(bundlesDirectory.resolve("stale.css")));
+
+        Map<?, ?> index = (Map<?, ?>) YamlUtils.load(bundlesDirectory.resolve(AssetsBundler.INDEX_FILE_NAME));
+        Map<?, ?> pageBundles = (Map<?, ?>) index.get("pages");
+        Map<?, ?> bundles = (Map<?, ?>) index.get("bundles");
+        Map<?, ?> indexBundles = (Map<?, ?>) pageBundles.get("pages/index.hbs");
+        List<?> cssBundles = (List<?>) indexBundles.get(AssetsBundler.TYPE_CSS);
+        List<?> jsBundles = (List<?>) indexBundles.get(AssetsBundler.TYPE_JS);
+        assertEquals(1, cssBundles.size());
+        assertEquals(1, jsBundles.size());
+        String cssBundle = cssBundles.get(0).toString();
+        String jsBundle = jsBundles.get(0).toString();
+        assertEquals(Arrays.asList(THEME_CSS, FOUNDATION_CSS, "public/css/app.css", "public/css/absolute.css"),
+                     bundles.get(cssBundle));
+        assertEquals(Arrays.asList(FOUNDATION_JS, "public/js/app.js"), bundles.get(jsBundle));
+
+        String css = read(bundlesDirectory.resolve(cssBundle.substring(cssBundle.indexOf('/') + 1)));
+        assertTrue(css.contains(ABSOLUTE_URLS));
+        assertTrue(css.indexOf("body {}") < css.indexOf(".foundation {}"));
+        assertTrue(css.indexOf(".foundation {}") < css.indexOf(".app {}"));
+        assertEquals("/* " + FOUNDATION_JS + " */\nfoundation()\n;\n/* public/js/app.js */\napp()\n;\n",
+                     read(bundlesDirectory.resolve(jsBundle.substring(jsBundle.indexOf('/') + 1))));
+
+        // CSS with relative URLs is served on its own, in order between the bundles of the other stylesheets
+        Map<?, ?> iconsBundles = (Map<?, ?>) pageBundles.get("pages/icons.hbs");
+        List<?> iconsCss = (List<?>) iconsBundles.get(AssetsBundler.TYPE_CSS);
+        assertEquals(3, iconsCss.size());
+        assertEquals(Collections.singletonList(THEME_CSS), bundles.get(iconsCss.get(0)));
+        assertEquals("public/css/icons.css", iconsCss.get(1));
+        assertEquals(Collections.singletonList("public/css/app.css"), bundles.get(iconsCss.get(2)));
+        assertEquals(jsBundles, iconsBundles.get(AssetsBundler.TYPE_JS));
+
+        // CSS with @import rules is served on its own, while missing assets are left out
+        Map<?, ?> importBundles = (Map<?, ?>) pageBundles.get("pages/import.hbs");
+        assertEquals(Collections.singletonMap(AssetsBundler.TYPE_CSS,
+                                              Collections.singletonList("public/css/importing.css")), importBundles);
+
+        // an unchanged bundle is not rewritten
+        AssetsBundler rebundler = new AssetsBundler(Application.read(application, dependencies),
+                                                    DependencyTree.readDependencyOrder(
+                                                            dependencies.resolve(DependencyTree.FILE_NAME)),
+                                                    bundlesDirectory);
+        assertEquals(4, rebundler.bundle(pages));
+        assertEquals(0, rebundler.getWrittenBundles());
+    }
+
+    private static PageAssets createPageAssets(List<String> css, List<String> headJs, List<String> js) {
+        PageAssets pageAssets = new PageAssets();
+        pageAssets.getCss().addAll(css);
+        pageAssets.getHeadJs().addAll(headJs);
+        pageAssets.getJs().addAll(js);
+        return pageAssets;
+    }
+}
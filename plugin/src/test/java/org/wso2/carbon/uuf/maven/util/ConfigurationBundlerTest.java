@@ -0,0 +1,137 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ConfigurationBundlerTest extends FileSystemTestCase {
+
+    private Path application;
+    private Path dependencies;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        application = directory.resolve("application");
+        dependencies = directory.resolve("dependencies");
+
+        write(application.resolve("config.yaml"), "theme: org.wso2.test.theme\ntitle: Application\n");
+        write(application.resolve("bindings.yaml"), "footer: org.wso2.test.zeta.footer\n");
+        // alpha depends on zeta, hence overrides zeta although it comes first by name
+        write(dependencies.resolve("alpha/config.yaml"), "title: Alpha\nmenu:\n  home: /alpha\n");
+        write(dependencies.resolve("alpha/bindings.yaml"),
+              "header: [org.wso2.test.alpha.header, org.wso2.test.zeta.logo]\n");
+        write(dependencies.resolve("alpha/fragments/header/header.hbs"), "header\n");
+        write(dependencies.resolve("zeta/config.yaml"), "title: Zeta\nmenu:\n  home: /zeta\n  about: /about\n");
+        write(dependencies.resolve("zeta/bindings.yaml"),
+              "header: org.wso2.test.zeta.logo\nsidebar: org.wso2.test.zeta.logo\n");
+        write(dependencies.resolve("zeta/fragments/logo/logo.hbs"), "logo\n");
+        write(dependencies.resolve("zeta/fragments/footer/footer.hbs"), "footer\n");
+        write(dependencies.resolve("org.wso2.test.theme/theme.yaml"), "css: [css/theme.css]\njs: js/theme.js\n");
+        write(dependencies.resolve("org.wso2.test.theme/public/css/theme.css"), "body {}\n");
+        write(dependencies.resolve("org.wso2.test.theme/public/js/theme.js"), "theme();\n");
+        write(dependencies.resolve(DependencyTree.FILE_NAME),
+              "org.wso2.test:org.wso2.test.app:carbon-feature:1.0.0\n" +
+                      "+- org.wso2.test:org.wso2.test.alpha:zip:1.0.0:compile\n" +
+                      "|  \\- org.wso2.test:org.wso2.test.zeta:zip:1.0.0:compile\n" +
+                      "\\- org.wso2.test:org.wso2.test.theme:tar:1.0.0:compile\n");
+    }
+
+    public void testConfigurationsAreMergedInDependencyOrder() throws IOException {
+        ConfigurationBundler bundler = createBundler();
+        Map<String, Object> bundle = bundler.bundle();
+
+        assertEquals(Collections.emptyList(), bundler.getErrors());
+        assertEquals(Collections.emptyList(), bundler.getWarnings());
+        assertEquals("org.wso2.test.theme", bundle.get("theme"));
+        Map<String, Object> menu = new LinkedHashMap<>();
+        menu.put("home", "/alpha");
+        menu.put("about", "/about");
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("title", "Application");
+        config.put("menu", menu);
+        config.put("theme", "org.wso2.test.theme");
+        assertEquals(config, bundle.get("config"));
+        Map<String, List<String>> bindings = new LinkedHashMap<>();
+        bindings.put("header", Arrays.asList("org.wso2.test.alpha.header", "org.wso2.test.zeta.logo"));
+        bindings.put("sidebar", Collections.singletonList("org.wso2.test.zeta.logo"));
+        bindings.put("footer", Collections.singletonList("org.wso2.test.zeta.footer"));
+        assertEquals(bindings, bundle.get("bindings"));
+        Map<String, Object> theme = new LinkedHashMap<>();
+        theme.put("css", Collections.singletonList("css/theme.css"));
+        theme.put("headJs", Collections.emptyList());
+        theme.put("js", Collections.singletonList("js/theme.js"));
+        assertEquals(Collections.singletonMap("org.wso2.test.theme", theme), bundle.get("themes"));
+    }
+
+    public void testDanglingReferencesAreWarned() throws IOException {
+        write(application.resolve("config.yaml"), "theme: org.wso2.test.missing\n");
+        write(application.resolve("bindings.yaml"), "footer: [missing, org.wso2.test.zeta.missing, " +
+                "org.wso2.test.unknown.footer]\n");
+        write(dependencies.resolve("org.wso2.test.theme/theme.yaml"), "css: [css/theme.css, css/missing.css]\n");
+        ConfigurationBundler bundler = createBundler();
+        bundler.bundle();
+
+        assertEquals(Collections.emptyList(), bundler.getErrors());
+        List<String> warnings = bundler.getWarnings();
+        assertEquals(warnings.toString(), 5, warnings.size());
+        assertTrue(warnings.contains("Cannot find fragment 'missing' bound to zone 'footer'."));
+        assertTrue(warnings.contains("Cannot find fragment 'org.wso2.test.zeta.missing' bound to zone 'footer'."));
+        assertTrue(warnings.contains("Cannot find fragment 'org.wso2.test.unknown.footer' bound to zone 'footer'."));
+        assertTrue(warnings.contains("Theme 'org.wso2.test.missing' is not a dependency of the application."));
+        assertTrue(warnings.contains("Cannot find file 'css/missing.css' listed in '" +
+                                             dependencies.resolve("org.wso2.test.theme/theme.yaml") + "'."));
+    }
+
+    public void testMalformedValuesAreErrors() throws IOException {
+        write(dependencies.resolve("zeta/config.yaml"), "theme: [a, b]\n");
+        write(dependencies.resolve("zeta/bindings.yaml"), "header:\n  fragment: org.wso2.test.zeta.logo\n");
+        write(dependencies.resolve("org.wso2.test.theme/theme.yaml"), "css: 42\n");
+        ConfigurationBundler bundler = createBundler();
+        bundler.bundle();
+
+        assertEquals(Arrays.asList(
+                "'theme' in '" + dependencies.resolve("zeta/config.yaml") + "' should be a theme name.",
+                "Zone 'header' in '" + dependencies.resolve("zeta/bindings.yaml") + "' should be bound to a " +
+                        "fragment name or a list of fragment names.",
+                "'css' in '" + dependencies.resolve("org.wso2.test.theme/theme.yaml") + "' should be a file name " +
+                        "or a list of file names."), bundler.getErrors());
+    }
+
+    public void testAllSyntaxErrorsAreReported() throws IOException {
+        write(application.resolve("bindings.yaml"), "header: [unclosed\n");
+        write(dependencies.resolve("zeta/config.yaml"), "- not\n- a map\n");
+        assertEquals(2, ConfigurationBundler.checkSyntax(application, dependencies).size());
+        assertEquals(Collections.emptyList(), ConfigurationBundler.checkSyntax(dependencies.resolve("alpha"),
+                                                                               directory.resolve("missing")));
+    }
+
+    private ConfigurationBundler createBundler() throws IOException {
+        return new ConfigurationBundler(Application.read(application, dependencies),
+                                        DependencyTree.readDependencyOrder(
+                                                dependencies.resolve(DependencyTree.FILE_NAME)));
+    }
+}
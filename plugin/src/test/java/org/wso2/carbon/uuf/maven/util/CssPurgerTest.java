@@ -0,0 +1,106 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class CssPurgerTest extends FileSystemTestCase {
+
+    private final CssPurger purger = new CssPurger(new HashSet<>(Arrays.asList("used", "main", "active")),
+                                                   Collections.singletonList(Pattern.compile("col-md-.*")));
+
+    public void testUnusedRulesAreRemoved() {
+        // whitespace around the removed rules is kept
+        assertEquals(".used { a: b; }\n\n#main { c: d; }\n\n",
+                     purger.purge(".used { a: b; }\n.unused { e: f; }\n#main { c: d; }\n#unused { g: h; }\n"));
+        assertEquals("div, a:hover, p > span {}", purger.purge("div, a:hover, p > span {}"));
+        assertEquals(".used .col-md-6 {}\n", purger.purge(".used .col-md-6 {}\n.used.unused {}"));
+    }
+
+    public void testPartialSelectorLists() {
+        assertEquals(".used,#main{ a: b; }", purger.purge(".used, .unused, #main, .other .used { a: b; }"));
+        assertEquals(".used, a { a: b; }", purger.purge(".used, a { a: b; }"));
+    }
+
+    public void testConditionalGroupRules() {
+        assertEquals("@media (max-width: 600px) {\n  .used { a: b; }\n  \n}\n",
+                     purger.purge("@media (max-width: 600px) {\n  .used { a: b; }\n  .unused { c: d; }\n}\n"));
+        assertEquals("\n.used {}", purger.purge("@media print { .unused { a: b; } /* comment */ }\n.used {}"));
+        assertEquals("@supports (display: grid) {@MEDIA screen {.used {}}}",
+                     purger.purge("@supports (display: grid) {@MEDIA screen {.used {}.unused {}}}"));
+    }
+
+    public void testOtherAtRulesAreKept() {
+        String css = "@import url(\"theme.css\");\n" +
+                "@charset \"UTF-8\";\n" +
+                "@keyframes unused { from { opacity: 0; } 50.5% { opacity: .5; } to { opacity: 1; } }\n" +
+                "@font-face { font-family: \"Unused\"; src: url(unused.woff); }\n" +
+                "@page :first { margin: 1in; }\n";
+        assertEquals(css, purger.purge(css));
+    }
+
+    public void testNamesWhichCannotBeAnalyzedAreKept() {
+        String css = ".used:not(.unused) {}\n" +
+                "a[class~=\"unused\"] {}\n" +
+                "li:nth-child(2n+1) {}\n" +
+                ".sm\\:unused {}\n" +
+                "a[title='{.unused}'] { content: \"}\"; }\n";
+        assertEquals(css, purger.purge(css));
+        assertEquals("", purger.purge(".unused:not(.used) {}"));
+    }
+
+    public void testCommentsAndStrings() {
+        assertEquals("/* .unused { } */\n.used /* .unused */ { content: \".unused {\"; }\n",
+                     purger.purge("/* .unused { } */\n.used /* .unused */ { content: \".unused {\"; }\n" +
+                                          ".unused { content: '}'; }"));
+    }
+
+    public void testMalformedCssIsKept() {
+        assertEquals(".used { a: b", purger.purge(".used { a: b"));
+        assertEquals("} .used {}", purger.purge("} .used {}"));
+    }
+
+    public void testPurgeFileAndReadUsedNames() throws IOException {
+        Path application = directory.resolve("application");
+        Path dependencies = directory.resolve("dependencies");
+        write(application.resolve("pages/index.hbs"), "<div class=\"page-header {{active}}\"></div>\n");
+        write(application.resolve("target/classes/ignored.js"), "ignored");
+        write(dependencies.resolve("foundation/public/js/menu.js"), "$('#side-menu').show();\n");
+        write(dependencies.resolve("org.wso2.test.theme/theme.yaml"), "css: css/theme.css\n");
+        write(dependencies.resolve("org.wso2.test.theme/public/js/theme.js"), "toggle('collapsed');\n");
+        Path css = dependencies.resolve("org.wso2.test.theme/public/css/theme.css");
+        write(css, ".page-header {} #side-menu {} .collapsed {} .active {} .ignored {} .unused {}");
+
+        Set<String> usedNames = CssPurger.readUsedNames(Application.read(application, dependencies));
+        assertTrue(usedNames.containsAll(Arrays.asList("page-header", "active", "side-menu", "collapsed")));
+        assertFalse(usedNames.contains("ignored"));
+
+        CssPurger cssPurger = new CssPurger(usedNames, Collections.<Pattern>emptyList());
+        assertEquals(21, cssPurger.purge(css));
+        assertEquals(".page-header {} #side-menu {} .collapsed {} .active {}  ", read(css));
+        assertEquals(0, cssPurger.purge(css));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DependencyTreeTest extends FileSystemTestCase {
+
+    public void testDependencyOrder() throws IOException {
+        List<String> order = read("org.wso2.test:org.wso2.test.app:carbon-feature:1.0.0\n" +
+                                          "+- org.wso2.test:org.wso2.test.foundation:zip:1.0.0:compile\n" +
+                                          "|  +- org.wso2.test:org.wso2.test.commons:zip:1.0.0:compile\n" +
+                                          "|  \\- org.wso2.test:org.wso2.test.util:zip:1.0.0:compile\n" +
+                                          "+- (org.wso2.test:org.wso2.test.commons:zip:1.0.0:compile - " +
+                                          "omitted for duplicate)\n" +
+                                          "\\- org.wso2.test:org.wso2.test.theme:tar:1.0.0:compile\n");
+        assertEquals(Arrays.asList("org.wso2.test.commons", "org.wso2.test.util", "org.wso2.test.foundation",
+                                   "org.wso2.test.theme", "org.wso2.test.app"), order);
+    }
+
+    public void testCyclesAreIgnored() throws IOException {
+        List<String> order = read("org.wso2.test:org.wso2.test.app:carbon-feature:1.0.0\n" +
+                                          "\\- org.wso2.test:org.wso2.test.a:zip:1.0.0:compile\n" +
+                                          "   \\- org.wso2.test:org.wso2.test.b:zip:1.0.0:compile\n" +
+                                          "      \\- (org.wso2.test:org.wso2.test.a:zip:1.0.0:compile - " +
+                                          "omitted for cycle)\n");
+        assertEquals(Arrays.asList("org.wso2.test.b", "org.wso2.test.a", "org.wso2.test.app"), order);
+    }
+
+    public void testMalformedLinesAreIgnored() throws IOException {
+        List<String> order = read("\n[WARNING] Using platform encoding\r\n" +
+                                          "org.wso2.test:org.wso2.test.app:carbon-feature:1.0.0\r\n" +
+                                          "\\- org.wso2.test:org.wso2.test.a:zip:1.0.0:compile\r\n" +
+                                          "   \\- garbage\r\n" +
+                                          "\r\n");
+        assertEquals(Arrays.asList("org.wso2.test.a", "org.wso2.test.app"), order);
+    }
+
+    public void testMissingFile() throws IOException {
+        assertEquals(Collections.emptyList(),
+                     DependencyTree.readDependencyOrder(directory.resolve(DependencyTree.FILE_NAME)));
+    }
+
+    public void testSort() {
+        List<String> order = Arrays.asList("org.wso2.test.zeta", "org.wso2.test.alpha", "org.wso2.test.app");
+        Component alpha = new Component("alpha", Collections.singletonList(directory.resolve("alpha")));
+        Component zeta = new Component("zeta", Collections.singletonList(directory.resolve("zeta")));
+        Component other = new Component("other", Collections.singletonList(directory.resolve("other")));
+        Component unknown = new Component("unknown", Collections.singletonList(directory.resolve("unknown")));
+
+        assertEquals(1, DependencyTree.indexOf(order, alpha));
+        assertEquals(order.size(), DependencyTree.indexOf(order, other));
+        assertEquals(Arrays.asList(zeta, alpha, other, unknown),
+                     DependencyTree.sort(order, Arrays.asList(other, alpha, unknown, zeta)));
+    }
+
+    private List<String> read(String content) throws IOException {
+        Path dependencyTree = directory.resolve(DependencyTree.FILE_NAME);
+        write(dependencyTree, content);
+        return DependencyTree.readDependencyOrder(dependencyTree);
+    }
+}
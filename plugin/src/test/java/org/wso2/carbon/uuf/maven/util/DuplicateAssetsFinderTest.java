@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+
+public class DuplicateAssetsFinderTest extends FileSystemTestCase {
+
+    private static final String JQUERY = "/* jQuery */ window.jQuery = {};\n";
+
+    private Path application;
+    private Path dependencies;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        application = directory.resolve("application");
+        dependencies = directory.resolve("dependencies");
+
+        write(application.resolve("public/js/jquery.js"), JQUERY);
+        write(application.resolve("public/js/empty.js"), "");
+        write(application.resolve("fragments/chart/public/js/jquery.js"), JQUERY);
+        write(dependencies.resolve("foundation/public/lib/jquery.js"), JQUERY);
+        write(dependencies.resolve("foundation/public/js/empty.js"), "");
+        // same size, different content
+        write(dependencies.resolve("foundation/public/js/other.js"), JQUERY.replace('j', 'J'));
+        write(dependencies.resolve("org.wso2.test.theme/theme.yaml"), "css: css/theme.css\n");
+        write(dependencies.resolve("org.wso2.test.theme/public/js/jquery.js"), JQUERY);
+    }
+
+    public void testDuplicatesAreKeyedByFeaturePaths() throws IOException {
+        Application app = Application.read(application, dependencies);
+        SortedMap<String, SortedMap<String, Path>> duplicates = new DuplicateAssetsFinder(app).find();
+
+        assertEquals(1, duplicates.size());
+        assertEquals(HashUtils.sha256(application.resolve("public/js/jquery.js")), duplicates.firstKey());
+        SortedMap<String, Path> identicalFiles = duplicates.get(duplicates.firstKey());
+        assertEquals(Arrays.asList("components/foundation/public/lib/jquery.js",
+                                   "fragments/chart/public/js/jquery.js",
+                                   "public/js/jquery.js",
+                                   "themes/org.wso2.test.theme/public/js/jquery.js"),
+                     new ArrayList<>(identicalFiles.keySet()));
+        for (Map.Entry<String, Path> entry : identicalFiles.entrySet()) {
+            assertEquals(entry.getValue(), app.resolveArchivePath(entry.getKey()));
+        }
+    }
+}
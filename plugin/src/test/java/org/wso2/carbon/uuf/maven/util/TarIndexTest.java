@@ -0,0 +1,210 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TarIndexTest extends FileSystemTestCase {
+
+    private static final String LONG_DIRECTORY = "theme/public/" + repeat("very-long-directory-name/", 6);
+
+    public void testGnuLongNames() throws IOException {
+        assertIndexedArchive(TarArchiveOutputStream.LONGFILE_GNU);
+    }
+
+    public void testPaxLongNames() throws IOException {
+        assertIndexedArchive(TarArchiveOutputStream.LONGFILE_POSIX);
+    }
+
+    public void testArchiveWithoutIndex() throws IOException {
+        Path tarFile = createArchive(getFiles(), TarArchiveOutputStream.LONGFILE_GNU);
+        assertNull(TarIndex.read(tarFile));
+    }
+
+    public void testArchiveWithLinksIsNotIndexed() throws IOException {
+        Path tarFile = directory.resolve("links.tar");
+        try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(Files.newOutputStream(tarFile))) {
+            TarArchiveEntry link = new TarArchiveEntry("theme/link", TarArchiveEntry.LF_SYMLINK);
+            link.setLinkName("theme/theme.yaml");
+            tarOutputStream.putArchiveEntry(link);
+            tarOutputStream.closeArchiveEntry();
+        }
+        assertNull(TarIndex.create(tarFile));
+    }
+
+    public void testEntriesOutsideOfTheDestinationAreRejected() throws IOException {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("../outside.txt", "outside");
+        Path tarFile = createArchive(files, TarArchiveOutputStream.LONGFILE_GNU);
+        TarIndex tarIndex = TarIndex.create(tarFile);
+        try {
+            tarIndex.extract(tarFile, directory.resolve("extracted"), 1);
+            fail("Entry outside of the extraction directory was extracted.");
+        } catch (IOException e) {
+            assertFalse(Files.exists(directory.resolve("outside.txt")));
+        }
+    }
+
+    public void testLastOfDuplicateEntriesIsExtracted() throws IOException {
+        Path tarFile = directory.resolve("duplicates.tar");
+        try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(Files.newOutputStream(tarFile))) {
+            for (int i = 0; i < 20; i++) {
+                byte[] content = repeat("version " + i + "\n", 100 - i).getBytes(StandardCharsets.UTF_8);
+                TarArchiveEntry tarEntry = new TarArchiveEntry((i % 2 == 0) ? "theme/theme.yaml" :
+                                                                       "theme/./theme.yaml");
+                tarEntry.setSize(content.length);
+                tarOutputStream.putArchiveEntry(tarEntry);
+                tarOutputStream.write(content);
+                tarOutputStream.closeArchiveEntry();
+            }
+        }
+        TarIndex.create(tarFile).appendTo(tarFile);
+        TarIndex tarIndex = TarIndex.read(tarFile);
+
+        Path destination = directory.resolve("extracted");
+        tarIndex.extract(tarFile, destination, 4);
+        assertEquals(repeat("version 19\n", 81), read(destination.resolve("theme/theme.yaml")));
+        assertEquals(repeat("version 18\n", 82),
+                     new String(tarIndex.readEntry(tarFile, "theme/theme.yaml"), StandardCharsets.UTF_8));
+    }
+
+    public void testTrailerOutsideOfTheArchiveIsRejected() throws IOException {
+        assertCorruptedIndex("#uuf-tar-index 0 2147483647\n");
+        assertCorruptedIndex("#uuf-tar-index -10 5\n");
+        assertCorruptedIndex("#uuf-tar-index 5 -10\n");
+        assertCorruptedIndex("#uuf-tar-index 9223372036854775807 10\n");
+    }
+
+    public void testEntriesOutsideOfTheArchiveAreRejected() throws IOException {
+        String index = "# UUF tar index v1\n0\t1000000\tf\ttheme/theme.yaml\n";
+        assertCorruptedIndex(index + "#uuf-tar-index 0 " + index.length() + "\n");
+        index = "# UUF tar index v1\n-1\t1\tf\ttheme/theme.yaml\n";
+        assertCorruptedIndex(index + "#uuf-tar-index 0 " + index.length() + "\n");
+    }
+
+    private void assertCorruptedIndex(String content) throws IOException {
+        Path tarFile = directory.resolve("corrupted.tar");
+        write(tarFile, content);
+        try {
+            TarIndex.read(tarFile);
+            fail("Corrupted index '" + content + "' was read.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("outside of tar archive"));
+        }
+    }
+
+    private void assertIndexedArchive(int longFileMode) throws IOException {
+        Map<String, String> files = getFiles();
+        Path tarFile = createArchive(files, longFileMode);
+        TarIndex.create(tarFile).appendTo(tarFile);
+
+        TarIndex tarIndex = TarIndex.read(tarFile);
+        assertNotNull(tarIndex);
+        List<String> names = new ArrayList<>();
+        for (TarIndex.Entry entry : tarIndex.getEntries()) {
+            names.add(entry.getName());
+        }
+        assertEquals(Arrays.asList("theme/", "theme/theme.yaml", LONG_DIRECTORY, LONG_DIRECTORY + "styles.css",
+                                   LONG_DIRECTORY + "empty.css"), names);
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            if (!file.getKey().endsWith("/")) {
+                assertEquals(file.getValue(), new String(tarIndex.readEntry(tarFile, file.getKey()),
+                                                         StandardCharsets.UTF_8));
+            }
+        }
+        assertNull(tarIndex.readEntry(tarFile, "theme/missing.css"));
+
+        // the indexed archive stays a valid tar archive
+        List<String> tarEntries = new ArrayList<>();
+        try (TarArchiveInputStream tarInputStream = new TarArchiveInputStream(Files.newInputStream(tarFile))) {
+            TarArchiveEntry tarEntry;
+            while ((tarEntry = tarInputStream.getNextTarEntry()) != null) {
+                tarEntries.add(tarEntry.getName());
+                if (files.containsKey(tarEntry.getName())) {
+                    assertEquals(files.get(tarEntry.getName()),
+                                 new String(IOUtils.toByteArray(tarInputStream), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        List<String> expectedTarEntries = new ArrayList<>(names);
+        expectedTarEntries.add(TarIndex.INDEX_ENTRY_NAME);
+        assertEquals(expectedTarEntries, tarEntries);
+
+        Path destination = directory.resolve("extracted");
+        tarIndex.extract(tarFile, destination, 4);
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path extracted = destination.resolve(file.getKey());
+            if (file.getKey().endsWith("/")) {
+                assertTrue(Files.isDirectory(extracted));
+            } else {
+                assertEquals(file.getValue(), new String(Files.readAllBytes(extracted), StandardCharsets.UTF_8));
+            }
+        }
+        assertFalse(Files.exists(destination.resolve(TarIndex.INDEX_ENTRY_NAME)));
+    }
+
+    private static Map<String, String> getFiles() {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("theme/", "");
+        files.put("theme/theme.yaml", "css: css/styles.css\n");
+        files.put(LONG_DIRECTORY, "");
+        // larger than a block, so that the following entry does not start at a block of the previous content
+        files.put(LONG_DIRECTORY + "styles.css", repeat(".selector { color: red; }\n", 40));
+        files.put(LONG_DIRECTORY + "empty.css", "");
+        return files;
+    }
+
+    private Path createArchive(Map<String, String> files, int longFileMode) throws IOException {
+        Path tarFile = directory.resolve("theme-" + longFileMode + ".tar");
+        try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(Files.newOutputStream(tarFile))) {
+            tarOutputStream.setLongFileMode(longFileMode);
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                byte[] content = file.getValue().getBytes(StandardCharsets.UTF_8);
+                TarArchiveEntry tarEntry = new TarArchiveEntry(file.getKey());
+                if (!file.getKey().endsWith("/")) {
+                    tarEntry.setSize(content.length);
+                }
+                tarOutputStream.putArchiveEntry(tarEntry);
+                tarOutputStream.write(content);
+                tarOutputStream.closeArchiveEntry();
+            }
+        }
+        return tarFile;
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+public class UnusedFragmentsFinderTest extends FileSystemTestCase {
+
+    private Path application;
+    private Path dependencies;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        application = directory.resolve("application");
+        dependencies = directory.resolve("dependencies");
+
+        write(application.resolve("bindings.yaml"), "org.wso2.test.app.sidebar: menu\n");
+        write(application.resolve("pages/index.hbs"), "{{fragment \"header\"}}\n" +
+                "{{fragment \"org.wso2.test.foundation.footer\"}}\n");
+        write(application.resolve("fragments/header/header.hbs"), "{{fragment \"logo\"}}\n");
+        write(application.resolve("fragments/logo/logo.hbs"), "logo\n");
+        write(application.resolve("fragments/menu/menu.hbs"), "menu\n");
+        write(application.resolve("fragments/dynamic/dynamic.hbs"), "dynamic\n");
+        write(application.resolve("fragments/unused/unused.hbs"), "unused\n");
+        write(dependencies.resolve("root/fragments/unused/public/css/unused.css"), ".unused {}\n");
+        write(dependencies.resolve("foundation/fragments/footer/footer.hbs"), "footer\n");
+        write(dependencies.resolve("foundation/fragments/orphan/orphan.hbs"), "orphan\n");
+        write(dependencies.resolve(DependencyTree.FILE_NAME),
+              "org.wso2.test:org.wso2.test.app:zip:1.0.0\n" +
+                      "\\- org.wso2.test:org.wso2.test.foundation:zip:1.0.0:compile\n");
+    }
+
+    public void testUnreachableFragmentsAreFound() throws IOException {
+        UnusedFragmentsFinder finder = new UnusedFragmentsFinder(Application.read(application, dependencies),
+                                                                 Collections.singletonList("dynamic"));
+        SortedMap<String, List<Path>> unusedFragments = finder.find();
+
+        assertEquals(Arrays.asList("components/foundation/fragments/orphan", "fragments/unused"),
+                     new ArrayList<>(unusedFragments.keySet()));
+        assertEquals(Collections.singletonList(dependencies.resolve("foundation/fragments/orphan")),
+                     unusedFragments.get("components/foundation/fragments/orphan"));
+        // fragments of the root component may be split across the application and dependent applications
+        assertEquals(Arrays.asList(application.resolve("fragments/unused"),
+                                   dependencies.resolve("root/fragments/unused")),
+                     unusedFragments.get("fragments/unused"));
+    }
+
+    public void testKeptFragmentsMayBeFullyQualified() throws IOException {
+        UnusedFragmentsFinder finder = new UnusedFragmentsFinder(Application.read(application, dependencies),
+                                                                 Arrays.asList("root.dynamic",
+                                                                               "org.wso2.test.foundation.orphan",
+                                                                               "unused"));
+        assertEquals(Collections.emptySet(), finder.find().keySet());
+    }
+
+    public void testFragmentsRenderedByClientJsAreReachable() throws IOException {
+        write(application.resolve("public/js/app.js"), "UUFClient.renderFragment(\"org.wso2.test.foundation.orphan\", " +
+                "{}, \"sidebar\", \"APPEND\");\n");
+        UnusedFragmentsFinder finder = new UnusedFragmentsFinder(Application.read(application, dependencies),
+                                                                 Collections.singletonList("dynamic"));
+
+        assertEquals(Collections.singletonList("fragments/unused"), new ArrayList<>(finder.find().keySet()));
+        assertEquals(Collections.emptySet(), finder.getDynamicReferences());
+    }
+
+    public void testReferencesWhichCannotBeFollowedAreRecorded() throws IOException {
+        write(application.resolve("pages/dynamic.hbs"), "{{fragment widgetName}}\n{{defineZone zone}}\n" +
+                "{{fragment \"missing\"}}\n");
+        write(application.resolve("fragments/header/header.js"), "function onRequest(env) {\n" +
+                "    UUFClient.renderFragment(env.params.fragment, {});\n}\n");
+        UnusedFragmentsFinder finder = new UnusedFragmentsFinder(Application.read(application, dependencies),
+                                                                 Collections.<String>emptyList());
+        finder.find();
+
+        assertEquals(Collections.singleton("fragment missing"), finder.getUnresolvedReferences());
+        assertEquals(Arrays.asList("defineZone zone in pages/dynamic.hbs", "fragment widgetName in pages/dynamic.hbs",
+                                   "renderFragment env.params.fragment in fragments/header/header.js"),
+                     new ArrayList<>(finder.getDynamicReferences()));
+    }
+
+    public void testComponentsWithNothingToRenderAreFound() throws IOException {
+        write(dependencies.resolve("widgets/fragments/chart/chart.hbs"), "{{js \"js/chart.js\"}}\n");
+        write(dependencies.resolve("widgets/fragments/chart/public/js/chart.js"), "chart();\n");
+        write(dependencies.resolve("widgets/public/css/widgets.css"), ".widget {}\n");
+        write(dependencies.resolve("layouts/layouts/main.hbs"), "{{defineZone \"content\"}}\n");
+        write(dependencies.resolve("settings/config.yaml"), "menu: {}\n");
+        write(dependencies.resolve("settings/fragments/form/form.hbs"), "form\n");
+        UnusedFragmentsFinder finder = new UnusedFragmentsFinder(Application.read(application, dependencies),
+                                                                 Collections.singletonList("dynamic"));
+        SortedMap<String, List<Path>> unusedFragments = finder.find();
+        SortedMap<String, List<Path>> unusedComponents = finder.findUnusedComponents(unusedFragments.keySet());
+
+        // foundation has a used fragment, layouts a layout and settings a configuration
+        assertEquals(Collections.singletonList("components/widgets"), new ArrayList<>(unusedComponents.keySet()));
+        assertEquals(Collections.singletonList(dependencies.resolve("widgets")),
+                     unusedComponents.get("components/widgets"));
+    }
+}
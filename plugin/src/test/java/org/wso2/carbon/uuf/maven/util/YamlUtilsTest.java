@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class YamlUtilsTest extends FileSystemTestCase {
+
+    public void testLoadsStandardTypes() throws IOException {
+        Path file = directory.resolve("config.yaml");
+        write(file, "theme: org.wso2.test.theme\nmenu:\n  - home\n  - about\n");
+
+        Map<Object, Object> expected = new LinkedHashMap<>();
+        expected.put("theme", "org.wso2.test.theme");
+        expected.put("menu", Arrays.asList("home", "about"));
+        assertEquals(expected, YamlUtils.loadMap(file));
+        assertEquals(Collections.emptyMap(), YamlUtils.loadMap(directory.resolve("missing.yaml")));
+    }
+
+    public void testRejectsJavaTypes() throws IOException {
+        Path file = directory.resolve("config.yaml");
+        write(file, "theme: !!java.io.File [\"/tmp\"]\n");
+        try {
+            YamlUtils.load(file);
+            fail("A YAML file which constructs Java objects is loaded.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("is not a valid YAML file"));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.util.image;
+
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.util.HashUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.imageio.ImageIO;
+
+public class ImageOptimizerTest extends FileSystemTestCase {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    public void testPngMetadataIsRemovedAndDataRecompressed() throws IOException {
+        byte[] image = createPng(Deflater.NO_COMPRESSION, true);
+        byte[] optimized = PngOptimizer.optimize(image);
+
+        assertTrue(optimized.length < image.length);
+        assertFalse(new String(optimized, StandardCharsets.ISO_8859_1).contains("tEXt"));
+        assertSamePixels(image, optimized);
+    }
+
+    public void testPngWhichCannotBeMadeSmallerIsReturnedAsItIs() throws IOException {
+        byte[] image = PngOptimizer.optimize(createPng(Deflater.NO_COMPRESSION, false));
+        assertSame(image, PngOptimizer.optimize(image));
+    }
+
+    public void testPngWithCorruptedChunkLengthIsReturnedAsItIs() throws IOException {
+        for (int length : new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE - 3, -1, 1 << 20}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            output.write(createPng(Deflater.NO_COMPRESSION, true));
+            output.write(ByteBuffer.allocate(4).putInt(length).array());
+            output.write("tEXt".getBytes(StandardCharsets.US_ASCII));
+            output.write(new byte[8]);
+            byte[] image = output.toByteArray();
+            assertSame("Chunk length " + length, image, PngOptimizer.optimize(image));
+        }
+    }
+
+    public void testInvalidPngIsRejected() {
+        try {
+            PngOptimizer.optimize("GIF89a".getBytes(StandardCharsets.US_ASCII));
+            fail("Invalid PNG image was optimized.");
+        } catch (IOException e) {
+            assertEquals("Not a PNG image.", e.getMessage());
+        }
+    }
+
+    public void testJpegCommentsAreRemoved() throws IOException {
+        byte[] image = createImage("jpeg");
+        byte[] commented = insert(image, 2, new byte[]{(byte) 0xFF, (byte) 0xFE, 0, 7, 'h', 'e', 'l', 'l', 'o'});
+
+        assertTrue(Arrays.equals(image, JpegOptimizer.optimize(commented)));
+        assertSame(image, JpegOptimizer.optimize(image));
+    }
+
+    public void testJpegWithInvalidSegmentLengthIsRejected() {
+        byte[] image = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, 0, 0};
+        try {
+            JpegOptimizer.optimize(image);
+            fail("JPEG image with an invalid segment length was optimized.");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Invalid JPEG segment length"));
+        }
+    }
+
+    public void testGifCommentsAreRemoved() throws IOException {
+        byte[] image = createImage("gif");
+        assertEquals(0x3B, image[image.length - 1]);
+        byte[] commented = insert(image, image.length - 1, new byte[]{0x21, (byte) 0xFE, 3, 'a', 'b', 'c', 0});
+
+        assertTrue(Arrays.equals(image, GifOptimizer.optimize(commented)));
+        assertSame(image, GifOptimizer.optimize(image));
+    }
+
+    public void testTruncatedGifIsRejected() throws IOException {
+        byte[] image = createImage("gif");
+        try {
+            GifOptimizer.optimize(Arrays.copyOf(image, image.length - 4));
+            fail("Truncated GIF image was optimized.");
+        } catch (IOException e) {
+            assertEquals("Truncated GIF image.", e.getMessage());
+        }
+    }
+
+    public void testResultsAreCachedByOptimizerVersion() throws IOException {
+        byte[] image = createPng(Deflater.NO_COMPRESSION, true);
+        Path source = directory.resolve("image.png");
+        Path target = directory.resolve("optimized/image.png");
+        Files.write(source, image);
+        Path cacheDirectory = directory.resolve("cache");
+
+        ImageOptimizer.Result result = new ImageOptimizer(cacheDirectory, 2).optimize(
+                Collections.singletonMap(source, target));
+        assertEquals(Collections.singletonList(source), result.getOptimizedImages());
+        assertEquals(0, result.getCacheHits());
+        Path cachedFile = cacheDirectory.resolve(ImageOptimizer.VERSION).resolve(HashUtils.sha256(image));
+        assertTrue(Arrays.equals(Files.readAllBytes(target), Files.readAllBytes(cachedFile)));
+
+        result = new ImageOptimizer(cacheDirectory, 2).optimize(Collections.singletonMap(source, target));
+        assertEquals(1, result.getCacheHits());
+        assertEquals(image.length - Files.size(target), result.getSavedBytes());
+    }
+
+    public void testCorruptedImagesAreLeftUntouched() throws IOException {
+        Path source = directory.resolve("corrupted.gif");
+        Path target = directory.resolve("optimized/corrupted.gif");
+        Files.write(source, "GIF89a".getBytes(StandardCharsets.US_ASCII));
+
+        ImageOptimizer.Result result = new ImageOptimizer(null, 1).optimize(Collections.singletonMap(source, target));
+        assertEquals(Collections.singleton(source), result.getFailedImages().keySet());
+        assertTrue(result.getOptimizedImages().isEmpty());
+        assertFalse(Files.exists(target));
+    }
+
+    private static byte[] createPng(int compressionLevel, boolean withText) throws IOException {
+        int width = 16;
+        int height = 16;
+        ByteArrayOutputStream rawData = new ByteArrayOutputStream();
+        for (int y = 0; y < height; y++) {
+            rawData.write(0); // filter type
+            for (int x = 0; x < width; x++) {
+                rawData.write(x * 16);
+                rawData.write(y * 16);
+                rawData.write(128);
+            }
+        }
+        Deflater deflater = new Deflater(compressionLevel);
+        deflater.setInput(rawData.toByteArray());
+        deflater.finish();
+        ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            imageData.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        png.write(PNG_SIGNATURE);
+        writeChunk(png, "IHDR", ByteBuffer.allocate(13).putInt(width).putInt(height).put((byte) 8).put((byte) 2)
+                .put((byte) 0).put((byte) 0).put((byte) 0).array());
+        if (withText) {
+            writeChunk(png, "tEXt", "Comment\0created by a test".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        writeChunk(png, "IDAT", imageData.toByteArray());
+        writeChunk(png, "IEND", new byte[0]);
+        return png.toByteArray();
+    }
+
+    private static void writeChunk(ByteArrayOutputStream output, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        output.write(ByteBuffer.allocate(4).putInt(data.length).array());
+        output.write(typeBytes);
+        output.write(data);
+        output.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+    }
+
+    private static byte[] createImage(String format) throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 8; x++) {
+            image.setRGB(x, x, 0xFF0000);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, output));
+        return output.toByteArray();
+    }
+
+    private static byte[] insert(byte[] image, int position, byte[] bytes) {
+        byte[] result = new byte[image.length + bytes.length];
+        System.arraycopy(image, 0, result, 0, position);
+        System.arraycopy(bytes, 0, result, position, bytes.length);
+        System.arraycopy(image, position, result, position + bytes.length, image.length - position);
+        return result;
+    }
+
+    private static void assertSamePixels(byte[] expected, byte[] actual) throws IOException {
+        BufferedImage expectedImage = ImageIO.read(new ByteArrayInputStream(expected));
+        BufferedImage actualImage = ImageIO.read(new ByteArrayInputStream(actual));
+        assertEquals(expectedImage.getWidth(), actualImage.getWidth());
+        assertEquals(expectedImage.getHeight(), actualImage.getHeight());
+        for (int y = 0; y < expectedImage.getHeight(); y++) {
+            for (int x = 0; x < expectedImage.getWidth(); x++) {
+                assertEquals(expectedImage.getRGB(x, y), actualImage.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.uuf;
+
+import junit.framework.TestCase;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class AbstractUUFMojoTest extends TestCase {
+
+    private final Path buildDirectory = Paths.get("component", "target");
+
+    public void testFeatureDirectoryIsNamedBySimpleArtifactId() {
+        assertEquals(buildDirectory.resolve("maven-shared-resources/uufapps/component1"),
+                     AbstractUUFMojo.getFeatureDirectory(buildDirectory, "org.wso2.carbon.uuf.it.component1"));
+        assertEquals(buildDirectory.resolve("maven-shared-resources/uufapps/foundation"),
+                     AbstractUUFMojo.getFeatureDirectory(buildDirectory, "foundation"));
+    }
+
+    public void testFeatureDirectoriesOfParallelModulesAreDistinct() {
+        assertFalse(AbstractUUFMojo.getFeatureDirectory(buildDirectory, "org.wso2.test.component1").equals(
+                AbstractUUFMojo.getFeatureDirectory(buildDirectory, "org.wso2.test.component2")));
+    }
+}
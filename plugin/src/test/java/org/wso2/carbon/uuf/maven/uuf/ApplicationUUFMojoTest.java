@@ -0,0 +1,130 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.wso2.carbon.uuf.maven.uuf;
+
+import org.apache.commons.io.FileUtils;
+import org.wso2.carbon.uuf.maven.FileSystemTestCase;
+import org.wso2.carbon.uuf.maven.model.Application;
+import org.wso2.carbon.uuf.maven.model.PageAssets;
+import org.wso2.carbon.uuf.maven.util.PageAssetsResolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ApplicationUUFMojoTest extends FileSystemTestCase {
+
+    private Path application;
+    private Path uufTemp;
+    private Path feature;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        application = directory.resolve("application");
+        uufTemp = directory.resolve("uuf-temp");
+        feature = directory.resolve("feature");
+
+        write(application.resolve("config.yaml"), "theme: org.wso2.test.theme\n");
+        write(application.resolve("bindings.yaml"), "content: greeting\n");
+        write(application.resolve("pages/index.hbs"), "{{layout \"main\"}}\n{{css \"css/app.css\"}}\n" +
+                "{{fragment \"org.wso2.test.foundation.footer\"}}\n");
+        write(application.resolve("layouts/main.hbs"), "{{favicon \"images/favicon.png\"}}\n" +
+                "{{defineZone \"content\"}}\n");
+        write(application.resolve("public/css/app.css"), ".app {}\n");
+        write(application.resolve("public/images/favicon.png"), "favicon");
+        write(application.resolve("fragments/greeting/greeting.hbs"), "{{js \"js/greeting.js\"}}\n");
+        write(application.resolve("fragments/greeting/public/js/greeting.js"), "greet();\n");
+        write(application.resolve("fragments/greeting/public/images/hello.png"), "hello");
+
+        // a dependent component, the root component of a dependent application and a theme, as extracted
+        write(uufTemp.resolve("foundation/pages/about.hbs"), "{{headJs \"js/head.js\"}}\n");
+        write(uufTemp.resolve("foundation/public/js/head.js"), "head();\n");
+        write(uufTemp.resolve("foundation/fragments/footer/footer.hbs"), "{{css \"css/footer.css\"}}\n");
+        write(uufTemp.resolve("foundation/fragments/footer/public/css/footer.css"), ".footer {}\n");
+        write(uufTemp.resolve("root/pages/shared.hbs"), "{{fragment \"banner\"}}\n");
+        write(uufTemp.resolve("root/fragments/banner/banner.hbs"), "{{css \"css/banner.css\"}}\n");
+        write(uufTemp.resolve("root/fragments/banner/public/css/banner.css"), ".banner {}\n");
+        write(uufTemp.resolve("org.wso2.test.theme/theme.yaml"), "css: css/theme.css\njs: js/theme.js\n");
+        write(uufTemp.resolve("org.wso2.test.theme/public/css/theme.css"), "body {}\n");
+        write(uufTemp.resolve("org.wso2.test.theme/public/js/theme.js"), "theme();\n");
+        write(uufTemp.resolve(ApplicationUUFMojo.DEPENDENCY_TREE_FILE_NAME),
+              "org.wso2.test:org.wso2.test.app:zip:1.0.0\n" +
+                      "\\- org.wso2.test:org.wso2.test.foundation:zip:1.0.0:compile\n");
+
+        // the feature is created from the project files and then the extracted dependencies are added
+        FileUtils.copyDirectory(application.toFile(), feature.toFile());
+        ApplicationUUFMojo.addDependencies(uufTemp, application, feature);
+    }
+
+    public void testPageAssetsManifestRefersToFeatureFiles() throws IOException {
+        PageAssetsResolver resolver = new PageAssetsResolver(Application.read(application, uufTemp));
+        Map<String, PageAssets> pages = resolver.resolve();
+        assertEquals(Collections.emptySet(), resolver.getUnresolvedReferences());
+        assertEquals(Arrays.asList("pages/index.hbs", "pages/shared.hbs", "components/foundation/pages/about.hbs"),
+                     new ArrayList<>(pages.keySet()));
+
+        int entries = 0;
+        for (Map.Entry<String, PageAssets> page : pages.entrySet()) {
+            assertTrue("Page '" + page.getKey() + "' is not in the feature.",
+                       Files.isRegularFile(feature.resolve(page.getKey())));
+            for (Object paths : page.getValue().toMap().values()) {
+                for (Object path : (List<?>) paths) {
+                    assertTrue("'" + path + "' of page '" + page.getKey() + "' is not in the feature.",
+                               Files.exists(feature.resolve(path.toString())));
+                    entries++;
+                }
+            }
+        }
+        assertEquals(17, entries);
+
+        PageAssets index = pages.get("pages/index.hbs");
+        assertEquals(Arrays.asList("layouts/main.hbs"), new ArrayList<>(index.getLayouts()));
+        assertEquals(Arrays.asList("themes/org.wso2.test.theme/public/css/theme.css", "public/css/app.css",
+                                   "components/foundation/fragments/footer/public/css/footer.css"),
+                     new ArrayList<>(index.getCss()));
+        assertEquals(Arrays.asList("public/images/favicon.png", "fragments/greeting/public/images/hello.png"),
+                     new ArrayList<>(index.getImages()));
+    }
+
+    public void testDependenciesAreAddedWithoutOverridingApplicationFiles() throws IOException {
+        write(uufTemp.resolve("root/config.yaml"), "theme: other\n");
+        ApplicationUUFMojo.addDependencies(uufTemp, application, feature);
+
+        assertEquals("theme: org.wso2.test.theme\n", read(feature.resolve("config.yaml")));
+        assertTrue(Files.isRegularFile(feature.resolve("fragments/banner/banner.hbs")));
+        assertTrue(Files.isRegularFile(feature.resolve("components/foundation/pages/about.hbs")));
+        assertTrue(Files.isRegularFile(feature.resolve("themes/org.wso2.test.theme/theme.yaml")));
+        assertTrue(Files.isRegularFile(feature.resolve("components/" + ApplicationUUFMojo.DEPENDENCY_TREE_FILE_NAME)));
+        assertFalse(Files.exists(feature.resolve("components/root")));
+    }
+
+    public void testFilesShadowedByApplicationAreNotMerged() throws IOException {
+        // the shadowing file of the application is not in the feature, e.g. it was moved to the shared assets store
+        write(uufTemp.resolve("root/public/css/app.css"), ".other {}\n");
+        Files.delete(feature.resolve("public/css/app.css"));
+        ApplicationUUFMojo.addDependencies(uufTemp, application, feature);
+
+        assertFalse(Files.exists(feature.resolve("public/css/app.css")));
+        assertTrue(Files.isRegularFile(feature.resolve("fragments/banner/public/css/banner.css")));
+    }
+}